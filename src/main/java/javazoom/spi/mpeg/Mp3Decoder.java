@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.DecoderException;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.Obuffer;
+import javazoom.spi.mpeg.sampled.file.MpegFrameHeader;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Decodes MPEG audio frames from a {@link ByteBuffer} into a {@link ShortBuffer} or a {@link FloatBuffer},
+ * without {@code javax.sound}.
+ * <p>
+ * a frame is given to the bitstream exactly, so nothing is read ahead or kept between calls
+ * and the input can be refilled freely. junk and an ID3v2 tag before a frame are skipped.
+ * nothing is allocated per frame once the first frame is decoded. not thread safe.
+ * <pre>
+ * Mp3Decoder decoder = new Mp3Decoder();
+ * Mp3Decoder.Frame frame;
+ * while ((frame = decoder.decodeFrame(in, out)) != null) {
+ *     // out has frame.samples() * frame.channels() more samples
+ * }
+ * // in.remaining() bytes are left for the next call
+ * </pre>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class Mp3Decoder {
+
+    private static final Logger logger = getLogger(Mp3Decoder.class.getName());
+
+    /** Information of the frame decoded last, the instance is reused. */
+    public static final class Frame {
+
+        private int header;
+        private int bytes;
+
+        private Frame() {
+        }
+
+        /** @return the raw 32 bit header word */
+        public int header() {
+            return header;
+        }
+
+        /** @return bytes consumed from the input, including skipped junk */
+        public int bytes() {
+            return bytes;
+        }
+
+        /** @return PCM samples per channel written */
+        public int samples() {
+            return MpegFrameHeader.samplesPerFrame(header);
+        }
+
+        /** @return 1 or 2 */
+        public int channels() {
+            return MpegFrameHeader.channels(header);
+        }
+
+        /** @return in Hz */
+        public int sampleRate() {
+            return MpegFrameHeader.frequency(header);
+        }
+
+        /** @return in bps */
+        public int bitrate() {
+            return MpegFrameHeader.bitrate(header);
+        }
+
+        @Override
+        public String toString() {
+            return "Frame{header: " + Integer.toHexString(header) + ", bytes: " + bytes +
+                    ", samples: " + samples() + ", channels: " + channels() +
+                    ", sampleRate: " + sampleRate() + ", bitrate: " + bitrate() + "}";
+        }
+    }
+
+    private final FrameInputStream source = new FrameInputStream();
+
+    private Bitstream bitstream;
+
+    private Decoder decoder;
+
+    private final BufferObuffer output = new BufferObuffer();
+
+    private final Frame frame = new Frame();
+
+    public Mp3Decoder() {
+        bitstream = new Bitstream(source);
+        decoder = new Decoder(null);
+        decoder.setOutputBuffer(output);
+    }
+
+    /**
+     * Starts a new stream, the state of the previous stream (bit reservoir, overlap,
+     * synthesis filter) is dropped, the buffers of this instance are kept.
+     */
+    public void reset() {
+        // the bitstream reads the source at once for an ID3v2 tag, nothing of the last frame must be there
+        source.set(null, 0, 0);
+        bitstream = new Bitstream(source);
+        decoder = new Decoder(null);
+        decoder.setOutputBuffer(output);
+    }
+
+    /**
+     * Decodes a frame into 16 bit samples, interleaved.
+     *
+     * @param in from the position, the position is advanced past the frame
+     * @param out from the position, the position is advanced past the samples
+     * @return null when no whole frame is in the input, the input is positioned at the next frame candidate
+     * @throws BufferOverflowException the output does not have room for a frame
+     * @throws IOException the frame is broken, it is consumed
+     */
+    public Frame decodeFrame(ByteBuffer in, ShortBuffer out) throws IOException {
+        return decodeFrame(in, out, null);
+    }
+
+    /**
+     * Decodes a frame into float samples in [-1.0, 1.0), interleaved, without clipping.
+     *
+     * @see #decodeFrame(ByteBuffer, ShortBuffer)
+     */
+    public Frame decodeFrame(ByteBuffer in, FloatBuffer out) throws IOException {
+        return decodeFrame(in, null, out);
+    }
+
+    /** */
+    private Frame decodeFrame(ByteBuffer in, ShortBuffer shorts, FloatBuffer floats) throws IOException {
+        int start = in.position();
+        int p = find(in, start);
+        if (p < 0) {
+            return null;
+        }
+        int header = getInt(in, p);
+        int size = MpegFrameHeader.frameSize(header);
+        if (p + size > in.limit()) {
+            return null;
+        }
+        int room = shorts != null ? shorts.remaining() : floats.remaining();
+        if (room < MpegFrameHeader.samplesPerFrame(header) * MpegFrameHeader.channels(header)) {
+            throw new BufferOverflowException();
+        }
+        in.position(p + size);
+        source.set(in, p, p + size);
+        output.set(shorts, floats, MpegFrameHeader.channels(header));
+        try {
+            Header h = bitstream.readFrame();
+            if (h == null) {
+                throw new IOException("broken frame at " + p);
+            }
+            decoder.decodeFrame(h, bitstream);
+            bitstream.closeFrame();
+        } catch (BitstreamException | DecoderException e) {
+            // starts over, the rest of the broken frame and the decoder state are dropped
+            reset();
+            throw new IOException(e);
+        } finally {
+            output.set(null, null, 0);
+        }
+        output.advance(shorts, floats);
+        frame.header = header;
+        frame.bytes = p + size - start;
+        return frame;
+    }
+
+    /**
+     * @return position of a frame header, -1 when more input is needed,
+     *         the input is positioned at the candidate or at an incomplete ID3v2 tag
+     */
+    private static int find(ByteBuffer in, int p) {
+        int limit = in.limit();
+        while (p + 4 <= limit) {
+            if (p + 10 <= limit && in.get(p) == 'I' && in.get(p + 1) == 'D' && in.get(p + 2) == '3') {
+                int size = 10 + ((in.get(p + 6) & 0x7f) << 21 | (in.get(p + 7) & 0x7f) << 14 |
+                        (in.get(p + 8) & 0x7f) << 7 | (in.get(p + 9) & 0x7f));
+                if (p + size > limit) {
+                    in.position(p);
+                    return -1;
+                }
+logger.log(Level.TRACE, "ID3v2: " + size);
+                p += size;
+                continue;
+            }
+            if (in.get(p) == (byte) 0xff && MpegFrameHeader.isValid(getInt(in, p))) {
+                in.position(p);
+                return p;
+            }
+            p++;
+        }
+        in.position(p);
+        return -1;
+    }
+
+    /** big endian regardless of the order of the buffer */
+    private static int getInt(ByteBuffer in, int p) {
+        return (in.get(p) & 0xff) << 24 | (in.get(p + 1) & 0xff) << 16 | (in.get(p + 2) & 0xff) << 8 | (in.get(p + 3) & 0xff);
+    }
+
+    /** Serves a frame of the input, ends there. */
+    private static final class FrameInputStream extends InputStream {
+
+        private ByteBuffer buffer;
+        private int position;
+        private int limit;
+
+        void set(ByteBuffer buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() {
+            return position < limit ? buffer.get(position++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int n = Math.min(len, limit - position);
+            if (n <= 0) {
+                return -1;
+            }
+            buffer.get(position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+    }
+
+    /** Writes blocks of the synthesis filter into the output interleaved. */
+    private static final class BufferObuffer extends Obuffer {
+
+        private ShortBuffer shorts;
+        private FloatBuffer floats;
+        private int channels;
+        private final int[] counts = new int[MAXCHANNELS];
+
+        void set(ShortBuffer shorts, FloatBuffer floats, int channels) {
+            this.shorts = shorts;
+            this.floats = floats;
+            this.channels = channels;
+            counts[0] = 0;
+            counts[1] = 0;
+        }
+
+        /** moves the output position past the samples written */
+        void advance(ShortBuffer shorts, FloatBuffer floats) {
+            if (shorts != null) {
+                shorts.position(shorts.position() + counts[0] * channels);
+            } else {
+                floats.position(floats.position() + counts[0] * channels);
+            }
+        }
+
+        @Override
+        public void append(int channel, short value) {
+            int p = counts[channel]++ * channels + channel;
+            if (shorts != null) {
+                shorts.put(shorts.position() + p, value);
+            } else {
+                floats.put(floats.position() + p, value * (1f / 32768));
+            }
+        }
+
+        @Override
+        public void appendSamples(int channel, float[] samples) {
+            int p = counts[channel] * channels + channel;
+            if (shorts != null) {
+                int base = shorts.position() + p;
+                for (int i = 0; i < 32; i++) {
+                    shorts.put(base + i * channels, (short) Math.max(-32768, Math.min(32767, (int) samples[i])));
+                }
+            } else {
+                int base = floats.position() + p;
+                for (int i = 0; i < 32; i++) {
+                    floats.put(base + i * channels, samples[i] * (1f / 32768));
+                }
+            }
+            counts[channel] += 32;
+        }
+
+        @Override
+        public void writeBuffer(int val) {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void clearBuffer() {
+        }
+
+        @Override
+        public void setStopFlag() {
+        }
+    }
+}
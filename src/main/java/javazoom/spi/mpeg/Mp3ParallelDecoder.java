@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import javazoom.spi.mpeg.sampled.file.MpegFrameHeader;
+import javazoom.spi.mpeg.sampled.file.MpegFrameIndex;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Decodes an MPEG audio file into 16 bit PCM on multiple cores.
+ * <p>
+ * frame boundaries are taken from a {@link MpegFrameIndex}, the frames are split into chunks
+ * and each chunk is decoded by its own {@link Mp3Decoder} on a fork/join pool.
+ * a chunk starts a few lead-in frames earlier to rebuild the bit reservoir, the overlap
+ * and the synthesis filter state, the output of those is discarded, so the result
+ * is the same as a sequential decode. chunks are decoded ahead of the consumer
+ * up to twice the parallelism of the pool, the memory used is bounded by that.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class Mp3ParallelDecoder {
+
+    private static final Logger logger = getLogger(Mp3ParallelDecoder.class.getName());
+
+    /** frames per chunk by default, about 13 seconds of 44.1kHz */
+    public static final int DEFAULT_CHUNK = 512;
+
+    /** frames those fill the overlap and the synthesis filter, 2 for the 384 samples of layer I */
+    private static final int MIN_LEAD_IN = 2;
+
+    private final ForkJoinPool pool;
+
+    private final int framesPerChunk;
+
+    /** max chunks in flight */
+    private final int ahead;
+
+    /** the common pool, {@link #DEFAULT_CHUNK} */
+    public Mp3ParallelDecoder() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+
+    /**
+     * @param pool where chunks are decoded
+     * @param framesPerChunk frames decoded by a task
+     */
+    public Mp3ParallelDecoder(ForkJoinPool pool, int framesPerChunk) {
+        if (framesPerChunk < 1) {
+            throw new IllegalArgumentException("framesPerChunk: " + framesPerChunk);
+        }
+        this.pool = pool;
+        this.framesPerChunk = framesPerChunk;
+        this.ahead = pool.getParallelism() * 2;
+    }
+
+    /**
+     * Decodes all frames of the file into the channel in order.
+     *
+     * @param order byte order of the samples
+     * @return bytes written
+     * @throws IOException no mpeg frame found or a read error
+     */
+    public long decode(Path path, WritableByteChannel out, ByteOrder order) throws IOException {
+        try (Chunks chunks = new Chunks(path, order)) {
+            long written = 0;
+            ByteBuffer pcm;
+            while ((pcm = chunks.next()) != null) {
+                while (pcm.hasRemaining()) {
+                    written += out.write(pcm);
+                }
+            }
+logger.log(Level.DEBUG, "decoded: " + written + " bytes, frames: " + chunks.index.frameCount());
+            return written;
+        }
+    }
+
+    /**
+     * Gets a 16 bit signed PCM stream of the file, chunks are decoded ahead of the reader.
+     * the frame length is {@link AudioSystem#NOT_SPECIFIED}.
+     *
+     * @param order byte order of the samples
+     * @throws IOException no mpeg frame found or a read error
+     */
+    public AudioInputStream getAudioInputStream(Path path, ByteOrder order) throws IOException {
+        Chunks chunks = new Chunks(path, order);
+        int header = chunks.index.header();
+        AudioFormat format = new AudioFormat(MpegFrameHeader.frequency(header), 16, MpegFrameHeader.channels(header),
+                true, order == ByteOrder.BIG_ENDIAN);
+        return new AudioInputStream(new ChunkInputStream(chunks), format, AudioSystem.NOT_SPECIFIED);
+    }
+
+    /** Chunks of a file in order, decoding ahead. */
+    private final class Chunks implements Closeable {
+
+        final FileChannel channel;
+        final MpegFrameIndex index;
+        final ByteOrder order;
+        /** submitted, in order */
+        final Deque<Decode> pending = new ArrayDeque<>();
+        /** the first frame of the chunk submitted next */
+        int nextFrame;
+
+        Chunks(Path path, ByteOrder order) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                this.index = MpegFrameIndex.scan(channel, 0, channel.size(), Files.getLastModifiedTime(path).toMillis());
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            this.order = order;
+            fill();
+        }
+
+        /** submits chunks up to {@link #ahead} */
+        private void fill() {
+            while (pending.size() < ahead && nextFrame < index.frameCount()) {
+                int to = Math.min(nextFrame + framesPerChunk, index.frameCount());
+                Decode task = new Decode(this, nextFrame, to);
+                pool.execute(task);
+                pending.add(task);
+                nextFrame = to;
+            }
+        }
+
+        /** @return PCM of the next chunk, null at the end */
+        ByteBuffer next() throws IOException {
+            Decode task = pending.poll();
+            if (task == null) {
+                return null;
+            }
+            fill();
+            try {
+                return task.join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        /** the first frame to decode for a chunk starting at {@code from} */
+        int leadIn(int from) {
+            int lead = Math.max(0, from - MIN_LEAD_IN);
+            int header = index.header();
+            if (MpegFrameHeader.layer(header) != 3) {
+                return lead;
+            }
+            // main data of the earliest frame kept may start this many bytes before it
+            int reservoir = MpegFrameHeader.versionBits(header) == 3 ? 511 : 255;
+            int overhead = 4 + 2 + MpegFrameHeader.sideInfoSize(header);
+            while (lead > 0 && reservoir > 0) {
+                lead--;
+                reservoir -= (int) (index.offset(lead + 1) - index.offset(lead)) - overhead;
+            }
+            return lead;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Decode task : pending) {
+                task.cancel(false);
+            }
+            pending.clear();
+            channel.close();
+        }
+    }
+
+    /** Decodes frames [from, to) after the lead-in. */
+    private static final class Decode extends RecursiveTask<ByteBuffer> {
+
+        final Chunks chunks;
+        final int from;
+        final int to;
+
+        Decode(Chunks chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ByteBuffer compute() {
+            try {
+                return decode();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private ByteBuffer decode() throws IOException {
+            MpegFrameIndex index = chunks.index;
+            int lead = chunks.leadIn(from);
+            long start = index.offset(lead);
+            ByteBuffer in = ByteBuffer.allocate((int) (index.offset(to) - start));
+            while (in.hasRemaining()) {
+                if (chunks.channel.read(in, start + in.position()) < 0) {
+                    throw new EOFException("at " + (start + in.position()));
+                }
+            }
+
+            int samples = index.samplesPerFrame() * MpegFrameHeader.channels(index.header());
+            ByteBuffer pcm = ByteBuffer.allocate((to - lead) * samples * 2).order(chunks.order);
+            ShortBuffer out = pcm.asShortBuffer();
+            Mp3Decoder decoder = new Mp3Decoder();
+            int kept = 0;
+            for (int frame = lead; frame < to; frame++) {
+                if (frame == from) {
+                    kept = out.position();
+                }
+                // exactly the indexed frame, junk between frames is not given to the decoder
+                in.limit((int) (index.offset(frame + 1) - start));
+                in.position((int) (index.offset(frame) - start));
+                try {
+                    if (decoder.decodeFrame(in, out) == null) {
+logger.log(Level.DEBUG, "frame " + frame + ": not decoded");
+                    }
+                } catch (IOException e) {
+logger.log(Level.DEBUG, "frame " + frame + ": " + e.getMessage());
+                }
+            }
+logger.log(Level.TRACE, "chunk " + from + "-" + to + ", lead-in: " + (from - lead));
+            return pcm.limit(out.position() * 2).position(kept * 2);
+        }
+    }
+
+    /** Reads chunks in order. */
+    private static final class ChunkInputStream extends InputStream {
+
+        private final Chunks chunks;
+        private ByteBuffer current = ByteBuffer.allocate(0);
+        private boolean ended;
+
+        ChunkInputStream(Chunks chunks) {
+            this.chunks = chunks;
+        }
+
+        /** @return false at the end */
+        private boolean ensure() throws IOException {
+            while (!current.hasRemaining()) {
+                if (ended) {
+                    return false;
+                }
+                ByteBuffer next = chunks.next();
+                if (next == null) {
+                    ended = true;
+                    return false;
+                }
+                current = next;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensure() ? current.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensure()) {
+                return -1;
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            chunks.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.convert;
+
+/**
+ * Decoding status of {@link DecodedMpegAudioInputStream} in primitives, reusable.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ * @see DecodedMpegAudioInputStream#getDecodeStatus(DecodeStatus)
+ * @see FrameListener
+ */
+public final class DecodeStatus {
+
+    private long frame;
+    private int bitrate = -1;
+    private int frameSize;
+    private long bytePosition;
+    private long microseconds;
+
+    /** @return frames decoded, same as {@code mp3.frame} */
+    public long frame() {
+        return frame;
+    }
+
+    /** @return bitrate of the current frame in bps, same as {@code mp3.frame.bitrate} */
+    public int bitrate() {
+        return bitrate;
+    }
+
+    /** @return bytes of the current frame, same as {@code mp3.frame.size.bytes} */
+    public int frameSize() {
+        return frameSize;
+    }
+
+    /** @return encoded bytes decoded, same as {@code mp3.position.byte} */
+    public long bytePosition() {
+        return bytePosition;
+    }
+
+    /** @return microseconds decoded, same as {@code mp3.position.microseconds} */
+    public long microseconds() {
+        return microseconds;
+    }
+
+    /** @return this */
+    public DecodeStatus copyFrom(DecodeStatus status) {
+        this.frame = status.frame;
+        this.bitrate = status.bitrate;
+        this.frameSize = status.frameSize;
+        this.bytePosition = status.bytePosition;
+        this.microseconds = status.microseconds;
+        return this;
+    }
+
+    /** */
+    void set(long frame, int bitrate, int frameSize, long bytePosition, long microseconds) {
+        this.frame = frame;
+        this.bitrate = bitrate;
+        this.frameSize = frameSize;
+        this.bytePosition = bytePosition;
+        this.microseconds = microseconds;
+    }
+
+    @Override
+    public String toString() {
+        return "DecodeStatus{frame: " + frame + ", bitrate: " + bitrate + ", frameSize: " + frameSize +
+                ", bytePosition: " + bytePosition + ", microseconds: " + microseconds + "}";
+    }
+}
@@ -23,14 +23,19 @@
 
 package javazoom.spi.mpeg.sampled.convert;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.FloatControl;
 
 import javazoom.jl.decoder.Bitstream;
 import javazoom.jl.decoder.BitstreamException;
@@ -41,8 +46,13 @@ import javazoom.jl.decoder.Header;
 import javazoom.jl.decoder.Obuffer;
 import javazoom.spi.PropertiesContainer;
 import javazoom.spi.mpeg.sampled.file.IcyListener;
+import javazoom.spi.mpeg.sampled.file.MpegFrameHeader;
+import javazoom.spi.mpeg.sampled.file.MpegFrameIndex;
+import javazoom.spi.mpeg.sampled.file.MpegSyncScanner;
+import javazoom.spi.mpeg.sampled.file.MpegVbrHeader;
 import javazoom.spi.mpeg.sampled.file.tag.TagParseEvent;
 import javazoom.spi.mpeg.sampled.file.tag.TagParseListener;
+import org.tritonus.share.TCircularBuffer;
 import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import static java.lang.System.getLogger;
@@ -50,6 +60,11 @@ import static java.lang.System.getLogger;
 
 /**
  * Main decoder.
+ * <p>
+ * frames are decoded asynchronously into a circular buffer by default.
+ * when the target format has the property {@code mp3.direct} of {@link Boolean#TRUE},
+ * {@link #read(byte[], int, int)} decodes frames straight into the caller's array
+ * and only the unread tail of a frame is kept.
  */
 public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInputStream implements PropertiesContainer, TagParseListener {
 
@@ -57,6 +72,9 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
     
     private InputStream m_encodedStream;
 
+    /** counts bytes taken by the bitstream, the bitstream reads ahead */
+    private PositionInputStream m_source;
+
     private Bitstream m_bitstream;
 
     private Decoder m_decoder;
@@ -65,6 +83,15 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
 
     private float[] m_equalizer_values;
 
+    /** equalizer and gain */
+    private final DecoderControls controls = new DecoderControls();
+
+    /** version of the controls applied, by the decoding thread only */
+    private long appliedVersion = -1;
+
+    /** {@link #m_equalizer_values} at the last application, to find writes by others */
+    private final float[] appliedBands = new float[DecoderControls.BANDS];
+
     private Header m_header;
 
     private DMAISObuffer m_oBuffer;
@@ -91,6 +118,61 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
 
     private Map<String, Object> properties = null;
 
+    /** the status of the last frame, written between odd and even {@link #statusSequence} */
+    private final DecodeStatus status = new DecodeStatus();
+
+    /** seqlock of {@link #status}, odd while writing */
+    private volatile int statusSequence;
+
+    /** for {@link #properties()} */
+    private final DecodeStatus propertiesStatus = new DecodeStatus();
+
+    /** copy on write */
+    private volatile FrameListener[] frameListeners = new FrameListener[0];
+
+    /** seek table, null when not available */
+    private MpegFrameIndex index;
+
+    /** Xing/VBRI TOC, used when no index, null when not available */
+    private MpegVbrHeader vbrHeader;
+
+    /** position of the first (Xing/VBRI header) frame */
+    private long firstFramePosition;
+
+    private float msPerFrame;
+
+    /** bytes searched for a good frame after a bad one */
+    private static final int RESYNC_BUDGET = 64 * 1024;
+
+    /** the first frame header, 0 when not available */
+    private int firstHeader;
+
+    /** max main_data_begin of layer III, bytes of the bit reservoir a frame may refer back */
+    private static final int MAX_RESERVOIR = 511;
+
+    /** decodes in the caller's thread, without the circular buffer */
+    private final boolean direct;
+
+    /** the unread tail of a frame in the direct mode, in {@link DMAISObuffer#getBuffer()} */
+    private int pendingOffset;
+
+    private int pendingLength;
+
+    /** PCM dropped by a skip or a seek is read into this, reused */
+    private final byte[] discardBuffer = new byte[4096];
+
+    /** the end of stream is reached in the direct mode */
+    private boolean ended;
+
+    /** average bytes of an audio frame of a CBR stream, 0 when not CBR */
+    private double bytesPerFrame;
+
+    /** position of the first audio frame of a CBR stream */
+    private long audioStart;
+
+    /** frame number of the first audio frame, 1 when a Xing/Info header frame precedes */
+    private int audioFrame;
+
     public DecodedMpegAudioInputStream(AudioFormat outputFormat, AudioInputStream inputStream) {
         super(outputFormat, -1);
         logger.log(Level.TRACE, ">DecodedMpegAudioInputStream(AudioFormat outputFormat, AudioInputStream inputStream)");
@@ -102,9 +184,11 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
             byteslength = -1;
         }
         m_encodedStream = inputStream;
+        direct = Boolean.TRUE.equals(outputFormat.getProperty("mp3.direct"));
         shoutlst = IcyListener.getInstance();
         shoutlst.reset();
-        m_bitstream = new Bitstream(inputStream);
+        m_source = new PositionInputStream(inputStream);
+        m_bitstream = new Bitstream(m_source);
         m_decoder = new Decoder(null);
         m_equalizer = new Equalizer();
         m_equalizer_values = new float[32];
@@ -112,7 +196,7 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
             m_equalizer_values[b] = m_equalizer.getBand(b);
         }
         m_decoder.setEqualizer(m_equalizer);
-        m_oBuffer = new DMAISObuffer(outputFormat.getChannels());
+        m_oBuffer = new DMAISObuffer(outputFormat);
         m_decoder.setOutputBuffer(m_oBuffer);
         try {
             m_header = m_bitstream.readFrame();
@@ -122,6 +206,37 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
             logger.log(Level.TRACE, "DecodedMpegAudioInputStream : Cannot read first frame : " + e.getMessage());
             byteslength = -1;
         }
+        if (m_header != null) {
+            firstFramePosition = m_bitstream.header_pos();
+            msPerFrame = m_header.msPerFrame();
+            firstHeader = m_header.getSyncHeader();
+        }
+        vbrHeader = MpegVbrHeader.fromProperties(inputStream.getFormat().properties());
+        if (m_header != null) {
+            if (vbrHeader == null && !m_header.vbr()) {
+                audioStart = firstFramePosition;
+                bytesPerFrame = MpegFrameHeader.bitrate(firstHeader) / 8d / MpegFrameHeader.frequency(firstHeader) *
+                        MpegFrameHeader.samplesPerFrame(firstHeader);
+            } else if (vbrHeader != null && vbrHeader.getType().equals("Info") && vbrHeader.getFrames() > 0 && vbrHeader.getBytes() > 0) {
+                int size = MpegFrameHeader.frameSize(firstHeader);
+                audioStart = firstFramePosition + size;
+                audioFrame = 1;
+                bytesPerFrame = (vbrHeader.getBytes() - size) / (double) vbrHeader.getFrames();
+            }
+        }
+        if (vbrHeader != null && !vbrHeader.isSeekable())
+            vbrHeader = null;
+        if (inputStream.getFormat().properties().get("mp3.index") instanceof MpegFrameIndex index) {
+            // the index must start at the same frame as the bitstream
+            if (m_header != null && index.frameCount() > 0 &&
+                    (index.header() & MpegFrameHeader.CONSTANT_MASK) == (m_header.getSyncHeader() & MpegFrameHeader.CONSTANT_MASK) &&
+                    index.offset(0) >= m_bitstream.header_pos()) {
+                this.index = index;
+                frameslength = index.frameCount();
+            } else {
+                logger.log(Level.DEBUG, "index does not match the stream, ignored: " + index);
+            }
+        }
         properties = new HashMap<>();
     }
 
@@ -136,8 +251,10 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
      * <li><b>mp3.position.byte</b> [Long], current position in bytes in the
      * stream.
      * <li><b>mp3.position.microseconds</b> [Long], elapsed microseconds.
+     * <li><b>mp3.index</b> [MpegFrameIndex], seek table when the source has one.
      * <li><b>mp3.equalizer</b> float[32], interactive equalizer array, values
-     * could be in [-1.0, +1.0].
+     * could be in [-1.0, +1.0]. prefer {@link #getControls()}, writes to this array
+     * are not guaranteed to be seen by the decoding thread in time.
      * <li><b>mp3.shoutcast.metadata.key</b> [String], Shoutcast meta key with
      * matching value. <br>
      * For instance : <br>
@@ -147,12 +264,15 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
      */
     @Override
     public Map<String, Object> properties() {
-        properties.put("mp3.frame", currentFrame);
-        properties.put("mp3.frame.bitrate", currentBitrate);
-        properties.put("mp3.frame.size.bytes", currentFramesize);
-        properties.put("mp3.position.byte", currentByte);
-        properties.put("mp3.position.microseconds", currentMicrosecond);
+        DecodeStatus status = getDecodeStatus(propertiesStatus);
+        properties.put("mp3.frame", status.frame());
+        properties.put("mp3.frame.bitrate", status.bitrate());
+        properties.put("mp3.frame.size.bytes", status.frameSize());
+        properties.put("mp3.position.byte", status.bytePosition());
+        properties.put("mp3.position.microseconds", status.microseconds());
         properties.put("mp3.equalizer", m_equalizer_values);
+        if (index != null)
+            properties.put("mp3.index", index);
         // Optionnal shoutcast stream meta-data.
         if (shoutlst != null) {
             String surl = shoutlst.getStreamUrl();
@@ -169,49 +289,260 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
     public void execute() {
         logger.log(Level.TRACE, "execute() : begin");
         try {
-            // Following line hangs when FrameSize is available in AudioFormat.
-            Header header = null;
-            if (m_header == null)
-                header = m_bitstream.readFrame();
-            else
-                header = m_header;
-            logger.log(Level.TRACE, "execute() : header = " + header);
-            if (header == null) {
-                logger.log(Level.TRACE, "header is null (end of mpeg stream)");
+            if (!decodeFrame()) {
                 getCircularBuffer().close();
                 return;
             }
-            currentFrame++;
-            currentBitrate = header.bitrateInstant();
-            currentFramesize = header.calculateFrameSize();
-            currentByte = currentByte + currentFramesize;
-            currentMicrosecond = (long) (currentFrame * header.msPerFrame() * 1000.0f);
-            for (int b = 0; b < m_equalizer_values.length; b++) {
-                m_equalizer.setBand(b, m_equalizer_values[b]);
-            }
-            m_decoder.setEqualizer(m_equalizer);
-            Obuffer decoderOutput = m_decoder.decodeFrame(header, m_bitstream);
-            m_bitstream.closeFrame();
             getCircularBuffer().write(m_oBuffer.getBuffer(), 0, m_oBuffer.getCurrentBufferSize());
             m_oBuffer.reset();
-            if (m_header != null)
-                m_header = null;
         } catch (BitstreamException | DecoderException e) {
             logger.log(Level.ERROR, e.getMessage(), e);
+            resync();
         }
         logger.log(Level.TRACE, "execute() : end");
     }
 
+    /**
+     * Decodes a frame into the output buffer.
+     *
+     * @return false at the end of stream
+     */
+    private boolean decodeFrame() throws BitstreamException, DecoderException {
+        // Following line hangs when FrameSize is available in AudioFormat.
+        Header header = null;
+        if (m_header == null)
+            header = m_bitstream.readFrame();
+        else
+            header = m_header;
+        logger.log(Level.TRACE, "execute() : header = " + header);
+        if (header == null) {
+            logger.log(Level.TRACE, "header is null (end of mpeg stream)");
+            return false;
+        }
+        currentFrame++;
+        currentBitrate = header.bitrateInstant();
+        currentFramesize = header.calculateFrameSize();
+        currentByte = currentByte + currentFramesize;
+        currentMicrosecond = (long) (currentFrame * header.msPerFrame() * 1000.0f);
+        applyControls();
+        m_decoder.decodeFrame(header, m_bitstream);
+        m_bitstream.closeFrame();
+        if (m_header != null)
+            m_header = null;
+        publish();
+        FrameListener[] listeners = frameListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].frameDecoded(status);
+        }
+        return true;
+    }
+
+    /** makes the current fields visible to {@link #getDecodeStatus(DecodeStatus)}, by the decoding thread only */
+    private void publish() {
+        statusSequence++;
+        VarHandle.storeStoreFence();
+        status.set(currentFrame, currentBitrate, currentFramesize, currentByte, currentMicrosecond);
+        statusSequence++;
+    }
+
+    /**
+     * Copies the status of the last decoded frame, without locks and without allocation,
+     * can be called from any thread.
+     *
+     * @param status to be filled
+     * @return the status given
+     */
+    public DecodeStatus getDecodeStatus(DecodeStatus status) {
+        int sequence;
+        do {
+            sequence = statusSequence;
+            status.copyFrom(this.status);
+            VarHandle.loadLoadFence();
+        } while ((sequence & 1) != 0 || sequence != statusSequence);
+        return status;
+    }
+
+    /** @param listener called for every decoded frame in the decoding thread */
+    public synchronized void addFrameListener(FrameListener listener) {
+        FrameListener[] listeners = Arrays.copyOf(frameListeners, frameListeners.length + 1);
+        listeners[frameListeners.length] = listener;
+        frameListeners = listeners;
+    }
+
+    /** */
+    public synchronized void removeFrameListener(FrameListener listener) {
+        for (int i = 0; i < frameListeners.length; i++) {
+            if (frameListeners[i] == listener) {
+                FrameListener[] listeners = new FrameListener[frameListeners.length - 1];
+                System.arraycopy(frameListeners, 0, listeners, 0, i);
+                System.arraycopy(frameListeners, i + 1, listeners, i, listeners.length - i);
+                frameListeners = listeners;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int read(byte[] abData, int nOffset, int nLength) throws IOException {
+        if (!direct) {
+            return super.read(abData, nOffset, nLength);
+        }
+        if (nLength == 0) {
+            return 0;
+        }
+        int n = Math.min(nLength, pendingLength);
+        System.arraycopy(m_oBuffer.getInterleavedBuffer(), pendingOffset, abData, nOffset, n);
+        pendingOffset += n;
+        pendingLength -= n;
+        while (n < nLength && !ended) {
+            try {
+                if (!decodeFrame()) {
+                    ended = true;
+                    break;
+                }
+            } catch (BitstreamException | DecoderException e) {
+                logger.log(Level.ERROR, e.getMessage(), e);
+                resync();
+                continue;
+            }
+            int size = m_oBuffer.getCurrentBufferSize();
+            if (nLength - n >= size) {
+                m_oBuffer.interleave(abData, nOffset + n);
+                n += size;
+            } else {
+                // keeps the tail
+                int part = nLength - n;
+                System.arraycopy(m_oBuffer.getBuffer(), 0, abData, nOffset + n, part);
+                pendingOffset = part;
+                pendingLength = size - part;
+                n = nLength;
+            }
+            m_oBuffer.reset();
+        }
+        return n == 0 && ended ? -1 : n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return direct ? pendingLength : super.available();
+    }
+
+    /**
+     * Applies the equalizer and the gain only when they are changed.
+     * the gain is folded into the scale of the synthesis output to PCM.
+     */
+    private void applyControls() {
+        if (!Arrays.equals(m_equalizer_values, appliedBands)) {
+            controls.setBands(m_equalizer_values);
+        }
+        DecoderControls.Snapshot snapshot = controls.snapshot();
+        if (snapshot.version == appliedVersion) {
+            return;
+        }
+        for (int b = 0; b < DecoderControls.BANDS; b++) {
+            m_equalizer.setBand(b, snapshot.bands[b]);
+        }
+        m_decoder.setEqualizer(m_equalizer);
+        m_oBuffer.setGain(snapshot.gain);
+        System.arraycopy(snapshot.bands, 0, m_equalizer_values, 0, DecoderControls.BANDS);
+        System.arraycopy(snapshot.bands, 0, appliedBands, 0, DecoderControls.BANDS);
+        appliedVersion = snapshot.version;
+logger.log(Level.DEBUG, "controls applied: " + appliedVersion);
+    }
+
+    /**
+     * @return {@link FloatControl.Type#MASTER_GAIN} in dB and {@link DecoderControls.EqualizerBand}s,
+     *         those may be set from any thread
+     */
+    public Control[] getControls() {
+        return controls.getControls();
+    }
+
+    /** @throws IllegalArgumentException not supported */
+    public Control getControl(Control.Type type) {
+        return controls.getControl(type);
+    }
+
+    /** */
+    public boolean isControlSupported(Control.Type type) {
+        return controls.isControlSupported(type);
+    }
+
     @Override
     public long skip(long bytes) {
-        if ((byteslength > 0) && (frameslength > 0)) {
-            float ratio = bytes * 1.0f / byteslength * 1.0f;
-            long bytesread = skipFrames((long) (ratio * frameslength));
-            currentByte = currentByte + bytesread;
-            m_header = null;
-            return bytesread;
-        } else
+        try {
+            if (index != null) {
+                return skipToFrame(index.frameAtOffset(index.offset((int) currentFrame) + bytes));
+            } else if (vbrHeader != null) {
+                return skipByToc(bytes);
+            } else if ((byteslength > 0) && (frameslength > 0)) {
+                float ratio = bytes * 1.0f / byteslength * 1.0f;
+                long bytesread = skipFrames((long) (ratio * frameslength));
+                currentByte = currentByte + bytesread;
+                m_header = null;
+                return bytesread;
+            } else
+                return skipUnknownLength(bytes);
+        } finally {
+            publish();
+        }
+    }
+
+    /**
+     * Skips a stream whose length is unknown (URL, shoutcast) by walking frame headers without decoding.
+     *
+     * @param bytes encoded bytes, same as the other ways of {@link #skip(long)}
+     * @return encoded bytes of the whole frames skipped, -1 when no frame
+     */
+    private long skipUnknownLength(long bytes) {
+        if (firstHeader == 0) {
             return -1;
+        }
+        // PCM decoded ahead is before the destination
+        discardBuffered(Long.MAX_VALUE);
+        long skipped = 0;
+        try {
+            while (true) {
+                Header header = m_header != null ? m_header : m_bitstream.readFrame();
+                if (header == null) {
+                    m_header = null;
+                    break;
+                }
+                if (skipped + header.calculateFrameSize() > bytes) {
+                    // kept pending, the next read decodes it
+                    m_header = header;
+                    break;
+                }
+                m_header = null;
+                skipped += header.calculateFrameSize();
+                m_bitstream.closeFrame();
+                currentFrame++;
+            }
+        } catch (BitstreamException e) {
+            logger.log(Level.ERROR, e.getMessage(), e);
+        }
+        currentByte += skipped;
+        currentMicrosecond = (long) (currentFrame * msPerFrame * 1000.0f);
+        logger.log(Level.TRACE, "skip unknown length: " + skipped + "/" + bytes);
+        return skipped;
+    }
+
+    /**
+     * Drops PCM decoded ahead in the circular buffer or the tail kept in the direct mode.
+     *
+     * @param bytes max bytes to drop
+     * @return bytes dropped
+     */
+    private long discardBuffered(long bytes) {
+        long discarded = Math.min(bytes, pendingLength);
+        pendingOffset += (int) discarded;
+        pendingLength -= (int) discarded;
+        TCircularBuffer buffer = getCircularBuffer();
+        int n;
+        while (discarded < bytes && (n = buffer.availableRead()) > 0) {
+            discarded += buffer.read(discardBuffer, 0, (int) Math.min(Math.min(n, discardBuffer.length), bytes - discarded));
+        }
+        return discarded;
     }
 
     /**
@@ -222,16 +553,29 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
      * @return bytes length skipped matching to frames skipped.
      */
     public long skipFrames(long frames) {
+        try {
+            if (index != null) {
+                return skipToFrame((int) Math.min(currentFrame + frames, index.frameCount()));
+            }
+            return readFrames(frames);
+        } finally {
+            publish();
+        }
+    }
+
+    /** Skips frames by reading them through the bitstream, the pending frame is the first one. */
+    private long readFrames(long frames) {
         logger.log(Level.TRACE, "skip(long frames) : begin");
         int framesRead = 0;
         int bytesReads = 0;
         try {
             for (int i = 0; i < frames; i++) {
-                Header header = m_bitstream.readFrame();
-                if (header != null) {
-                    int fsize = header.calculateFrameSize();
-                    bytesReads = bytesReads + fsize;
+                Header header = m_header != null ? m_header : m_bitstream.readFrame();
+                m_header = null;
+                if (header == null) {
+                    break;
                 }
+                bytesReads = bytesReads + header.calculateFrameSize();
                 m_bitstream.closeFrame();
                 framesRead++;
             }
@@ -243,8 +587,286 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
         return bytesReads;
     }
 
-    private boolean isBigEndian() {
-        return getFormat().isBigEndian();
+    /** @return number of frames taken from the bitstream, including the pending one */
+    private long framePosition() {
+        return currentFrame + (m_header != null ? 1 : 0);
+    }
+
+    /**
+     * Jumps forward to the frame using the index.
+     * when the frame is still in the read ahead of the bitstream, frames are read through.
+     *
+     * @param frame destination, backward is not supported
+     * @return bytes skipped
+     */
+    private long skipToFrame(int frame) {
+        // the pending frame, if any, is frame #from and is skipped too
+        long from = currentFrame;
+        if (frame <= from) {
+            return 0;
+        }
+        long bytes = index.offset(frame) - index.offset((int) from);
+        try {
+            passPendingFrame();
+        } catch (IOException e) {
+            logger.log(Level.ERROR, e.getMessage(), e);
+        }
+        if (index.offset(frame) < m_source.position) {
+            readFrames(frame - currentFrame);
+        } else {
+            try {
+                seekSource(index.offset(frame));
+            } catch (IOException e) {
+                logger.log(Level.ERROR, e.getMessage(), e);
+            }
+            currentFrame = frame;
+        }
+        logger.log(Level.TRACE, "skip to frame: " + from + " -> " + frame + ", " + bytes + " bytes");
+        currentByte = currentByte + bytes;
+        currentMicrosecond = index.micros((int) currentFrame);
+        return bytes;
+    }
+
+    /**
+     * Jumps forward using the Xing/VBRI TOC, the bitstream syncs again at the destination.
+     *
+     * @param bytes encoded bytes to skip
+     * @return bytes skipped
+     */
+    private long skipByToc(long bytes) {
+        long from = framePosition();
+        int frames = vbrHeader.getFrames();
+        // frame 0 is the header frame
+        long position = vbrHeader.byteAt(Math.max(from - 1, 0) / (double) frames);
+        double fraction = vbrHeader.fractionAt(position + bytes);
+        long target = vbrHeader.byteAt(fraction);
+        long frame = 1 + Math.round(fraction * frames);
+        if (frame <= from || target <= position) {
+            return 0;
+        }
+        try {
+            passPendingFrame();
+        } catch (IOException e) {
+            logger.log(Level.ERROR, e.getMessage(), e);
+        }
+        if (firstFramePosition + target < m_source.position) {
+            readFrames(frame - currentFrame);
+        } else {
+            try {
+                seekSource(firstFramePosition + target);
+            } catch (IOException e) {
+                logger.log(Level.ERROR, e.getMessage(), e);
+            }
+            currentFrame = frame;
+        }
+        logger.log(Level.TRACE, "skip by toc: " + from + " -> " + frame + ", " + (target - position) + " bytes");
+        currentByte = currentByte + (target - position);
+        currentMicrosecond = (long) (currentFrame * msPerFrame * 1000.0f);
+        return target - position;
+    }
+
+    /**
+     * Positions this stream at the sample, the next read returns PCM from there.
+     * <p>
+     * jumps to the frame by the frame index ({@code mp3spi.index}) when available, otherwise frame headers
+     * are walked. a few frames before the target are decoded and discarded to refill the layer III
+     * bit reservoir and the synthesis state, then samples in the target frame are dropped,
+     * so the output is the same as reading through.
+     *
+     * @param sample per channel, from the start of this stream
+     * @return the sample positioned, less than requested at the end of stream
+     * @throws IOException backward seek
+     */
+    public long seekToSample(long sample) throws IOException {
+        if (firstHeader == 0) {
+            throw new IOException("no frame");
+        }
+        int samplesPerFrame = MpegFrameHeader.samplesPerFrame(firstHeader);
+        long frame = sample / samplesPerFrame;
+        int drop = (int) (sample % samplesPerFrame);
+        if (frame < currentFrame) {
+            throw new IOException("backward seek is not supported: " + sample);
+        }
+        // PCM decoded ahead is before the target
+        discardBuffered(Long.MAX_VALUE);
+        long from = frame - primingFrames(frame);
+        if (from > currentFrame) {
+            passPendingFrame();
+            if (index != null) {
+                skipToFrame((int) Math.min(from, index.frameCount()));
+            } else {
+                readFrames(from - currentFrame);
+            }
+        }
+        // decode and discard up to the target, decoder state is continuous from here
+        int frameSize = getFormat().getFrameSize();
+        try {
+            while (currentFrame <= frame) {
+                Header header = m_header != null ? m_header : m_bitstream.readFrame();
+                m_header = null;
+                if (header == null) {
+                    break;
+                }
+                m_decoder.decodeFrame(header, m_bitstream);
+                m_bitstream.closeFrame();
+                if (currentFrame == frame) {
+                    int size = m_oBuffer.getCurrentBufferSize();
+                    int offset = Math.min(drop * frameSize, size);
+                    if (direct) {
+                        m_oBuffer.getBuffer(); // kept as the tail
+                        pendingOffset = offset;
+                        pendingLength = size - offset;
+                    } else {
+                        getCircularBuffer().write(m_oBuffer.getBuffer(), offset, size - offset);
+                    }
+                }
+                m_oBuffer.reset();
+                currentFrame++;
+            }
+        } catch (BitstreamException | DecoderException e) {
+            throw new IOException(e);
+        }
+        long position = currentFrame <= frame ? currentFrame * samplesPerFrame : sample;
+        currentMicrosecond = position * 1_000_000L / (long) getFormat().getSampleRate();
+        publish();
+logger.log(Level.DEBUG, "seek: " + sample + ", frame: " + frame + ", primed from: " + Math.max(from, 0));
+        return position;
+    }
+
+    /**
+     * Positions this stream at the time.
+     *
+     * @param micros from the start of this stream
+     * @return microseconds positioned
+     * @see #seekToSample(long)
+     */
+    public long seekToMicroseconds(long micros) throws IOException {
+        float sampleRate = getFormat().getSampleRate();
+        long sample = seekToSample((long) (micros * (double) sampleRate / 1_000_000d));
+        return (long) (sample * 1_000_000d / sampleRate);
+    }
+
+    /**
+     * Positions this stream at the time for scrubbing, forward only.
+     * <p>
+     * the target frame is found by the frame index, or the encoded stream is skipped
+     * to the frame by the average frame size of a CBR stream or by the Xing/VBRI TOC
+     * and the bitstream syncs again there, then a few frames are decoded for priming.
+     * exact with the index or on a CBR stream, within the TOC resolution (1% of the duration) otherwise.
+     * frame headers are walked when none of them is available.
+     *
+     * @param micros from the start of this stream
+     * @return microseconds positioned, same as {@link #positionMicros()}
+     * @see #seekToSample(long)
+     */
+    public long seek(long micros) throws IOException {
+        if (firstHeader == 0) {
+            throw new IOException("no frame");
+        }
+        long sample = (long) (micros * (double) getFormat().getSampleRate() / 1_000_000d);
+        long frame = sample / MpegFrameHeader.samplesPerFrame(firstHeader);
+        long from = frame - primingFrames(frame);
+        if (index == null && from > framePosition()) {
+            jumpToFrame(from);
+        }
+        return seekToMicroseconds(micros);
+    }
+
+    /**
+     * @return microseconds of the PCM read next, PCM decoded ahead is not counted
+     */
+    public long positionMicros() {
+        if (firstHeader == 0) {
+            return 0;
+        }
+        int buffered = direct ? pendingLength : getCircularBuffer().availableRead();
+        long sample = currentFrame * MpegFrameHeader.samplesPerFrame(firstHeader) - buffered / getFormat().getFrameSize();
+        return (long) (Math.max(sample, 0) * 1_000_000d / getFormat().getSampleRate());
+    }
+
+    /**
+     * Jumps forward to the frame by an estimated position, see {@link #seek(long)}.
+     */
+    private void jumpToFrame(long frame) throws IOException {
+        long position = -1;
+        if (bytesPerFrame > 0) {
+            // half a frame before, the first frame synced is the one
+            position = audioStart + (long) ((frame - audioFrame - 0.5) * bytesPerFrame);
+        } else if (vbrHeader != null) {
+            // frame 0 is the header frame
+            position = firstFramePosition + vbrHeader.byteAt((frame - 1) / (double) vbrHeader.getFrames());
+        }
+        if (position < m_source.position) {
+            // no estimation, or still in the read ahead of the bitstream
+            passPendingFrame();
+            readFrames(frame - currentFrame);
+            return;
+        }
+        m_header = null;
+        m_source.skipTo(position);
+        m_bitstream = new Bitstream(MpegSyncScanner.sync(m_source, 0, RESYNC_BUDGET, MpegSyncScanner.DEFAULT_CHAIN));
+        logger.log(Level.TRACE, "jump: " + currentFrame + " -> " + frame + " at " + position);
+        currentByte = position - firstFramePosition;
+        currentFrame = frame;
+    }
+
+    /** passes the frame whose header is read ahead without decoding */
+    private void passPendingFrame() throws IOException {
+        if (m_header != null) {
+            try {
+                m_bitstream.closeFrame();
+            } catch (BitstreamException e) {
+                throw new IOException(e);
+            }
+            m_header = null;
+            currentFrame++;
+        }
+    }
+
+    /**
+     * Frames to decode before the target, enough for the bit reservoir of the previous frame
+     * and the overlap of the previous granule. layer I and II need the synthesis filter history only.
+     * the cost does not depend on where the target is.
+     */
+    private int primingFrames(long frame) {
+        if (MpegFrameHeader.layer(firstHeader) != 3) {
+            return 1;
+        }
+        int overhead = 4 + (MpegFrameHeader.hasCrc(firstHeader) ? 2 : 0) + MpegFrameHeader.sideInfoSize(firstHeader);
+        int frames = 1;
+        int bytes = 0;
+        if (index != null) {
+            // exact main data sizes of the preceding frames
+            for (long f = frame - 2; f >= 0 && bytes < MAX_RESERVOIR; f--) {
+                bytes += (int) (index.offset((int) f + 1) - index.offset((int) f)) - overhead;
+                frames++;
+            }
+        } else {
+            // the smallest frame of this stream, bitrate index 1
+            int smallest = MpegFrameHeader.frameSize((firstHeader & ~0xf200) | 0x1000) - overhead;
+            frames += (MAX_RESERVOIR + smallest - 1) / Math.max(smallest, 1);
+        }
+        return (int) Math.min(frames, frame);
+    }
+
+    /**
+     * Moves the encoded stream forward to the absolute position and restarts the bitstream there.
+     *
+     * @param position must not be behind {@link PositionInputStream#position}
+     */
+    private void seekSource(long position) throws IOException {
+        m_source.skipTo(position);
+        m_bitstream = new Bitstream(m_source);
+    }
+
+    /**
+     * Restarts the bitstream at the next confirmed frame after a bad one,
+     * the stream ends when no frame is found within {@link #RESYNC_BUDGET}.
+     */
+    private void resync() {
+        m_header = null;
+        m_bitstream = new Bitstream(MpegSyncScanner.sync(m_source, 0, RESYNC_BUDGET, MpegSyncScanner.DEFAULT_CHAIN));
+        logger.log(Level.DEBUG, "resync at: " + m_source.position);
     }
 
     @Override
@@ -253,39 +875,56 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
         m_encodedStream.close();
     }
 
+    /**
+     * Keeps samples per channel as the synthesis filter gives them in blocks,
+     * those are converted, interleaved and byte ordered at once when the buffer is taken.
+     * 16, 24 or 32 bit signed integer, or 32 bit float ({@code PCM_FLOAT}) of the synthesis output as is.
+     */
     private class DMAISObuffer extends Obuffer {
 
         private int m_nChannels;
 
         private byte[] m_abBuffer;
 
-        private int[] m_anBufferPointers;
+        /** planar samples of the synthesis filter, the full scale is 32768 */
+        private float[][] m_afSamples;
+
+        private int[] m_anSampleCounts;
 
         private boolean m_bIsBigEndian;
 
-        public DMAISObuffer(int nChannels) {
-            m_nChannels = nChannels;
-            m_abBuffer = new byte[OBUFFERSIZE * nChannels];
-            m_anBufferPointers = new int[nChannels];
+        private boolean m_bFloat;
+
+        private int m_nSampleBytes;
+
+        /** linear gain folded into the conversion */
+        private float m_fGain = 1;
+
+        public DMAISObuffer(AudioFormat format) {
+            m_nChannels = format.getChannels();
+            m_bFloat = AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+            m_nSampleBytes = m_bFloat ? 4 : switch (format.getSampleSizeInBits()) {
+                case 24 -> 3;
+                case 32 -> 4;
+                default -> 2;
+            };
+            m_abBuffer = new byte[OBUFFERSIZE * m_nChannels * m_nSampleBytes];
+            m_afSamples = new float[m_nChannels][OBUFFERSIZE];
+            m_anSampleCounts = new int[m_nChannels];
             reset();
-            m_bIsBigEndian = DecodedMpegAudioInputStream.this.isBigEndian();
+            m_bIsBigEndian = format.isBigEndian();
         }
 
         @Override
         public void append(int nChannel, short sValue) {
-            byte bFirstByte;
-            byte bSecondByte;
-            if (m_bIsBigEndian) {
-                bFirstByte = (byte) ((sValue >>> 8) & 0xFF);
-                bSecondByte = (byte) (sValue & 0xFF);
-            } else // little endian
-            {
-                bFirstByte = (byte) (sValue & 0xFF);
-                bSecondByte = (byte) ((sValue >>> 8) & 0xFF);
-            }
-            m_abBuffer[m_anBufferPointers[nChannel]] = bFirstByte;
-            m_abBuffer[m_anBufferPointers[nChannel] + 1] = bSecondByte;
-            m_anBufferPointers[nChannel] += m_nChannels * 2;
+            m_afSamples[nChannel][m_anSampleCounts[nChannel]++] = sValue;
+        }
+
+        /** a block of 32 samples from the synthesis filter */
+        @Override
+        public void appendSamples(int nChannel, float[] afSamples) {
+            System.arraycopy(afSamples, 0, m_afSamples[nChannel], m_anSampleCounts[nChannel], 32);
+            m_anSampleCounts[nChannel] += 32;
         }
 
         @Override
@@ -304,20 +943,123 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
         public void clearBuffer() {
         }
 
+        /** @return interleaved PCM of {@link #getCurrentBufferSize()} bytes */
         public byte[] getBuffer() {
+            interleave(m_abBuffer, 0);
             return m_abBuffer;
         }
 
+        /** @return the bytes interleaved by the last {@link #getBuffer()} */
+        public byte[] getInterleavedBuffer() {
+            return m_abBuffer;
+        }
+
+        /** writes {@link #getCurrentBufferSize()} bytes of interleaved PCM */
+        public void interleave(byte[] abData, int nOffset) {
+            int stride = m_nChannels * m_nSampleBytes;
+            float k = m_fGain * (m_bFloat ? 1f / 32768 : 1 << (8 * m_nSampleBytes - 16));
+            int n = m_anSampleCounts[0];
+            // byte offsets in a sample from the least significant
+            int b0 = m_bIsBigEndian ? m_nSampleBytes - 1 : 0;
+            int b1 = m_bIsBigEndian ? m_nSampleBytes - 2 : 1;
+            int b2 = m_bIsBigEndian ? m_nSampleBytes - 3 : 2;
+            int b3 = m_bIsBigEndian ? m_nSampleBytes - 4 : 3;
+            for (int c = 0; c < m_nChannels; c++) {
+                float[] samples = m_afSamples[c];
+                int p = nOffset + c * m_nSampleBytes;
+                if (m_bFloat) {
+                    for (int i = 0; i < n; i++, p += stride) {
+                        int w = Float.floatToRawIntBits(samples[i] * k);
+                        abData[p + b0] = (byte) w;
+                        abData[p + b1] = (byte) (w >> 8);
+                        abData[p + b2] = (byte) (w >> 16);
+                        abData[p + b3] = (byte) (w >> 24);
+                    }
+                } else if (m_nSampleBytes == 2) {
+                    for (int i = 0; i < n; i++, p += stride) {
+                        int w = Math.max(-32768, Math.min(32767, (int) (samples[i] * k)));
+                        abData[p + b0] = (byte) w;
+                        abData[p + b1] = (byte) (w >> 8);
+                    }
+                } else if (m_nSampleBytes == 3) {
+                    for (int i = 0; i < n; i++, p += stride) {
+                        int w = Math.max(-8388608, Math.min(8388607, (int) (samples[i] * k)));
+                        abData[p + b0] = (byte) w;
+                        abData[p + b1] = (byte) (w >> 8);
+                        abData[p + b2] = (byte) (w >> 16);
+                    }
+                } else {
+                    for (int i = 0; i < n; i++, p += stride) {
+                        // the cast saturates
+                        int w = (int) (samples[i] * k);
+                        abData[p + b0] = (byte) w;
+                        abData[p + b1] = (byte) (w >> 8);
+                        abData[p + b2] = (byte) (w >> 16);
+                        abData[p + b3] = (byte) (w >> 24);
+                    }
+                }
+            }
+        }
+
+        public void setGain(float gain) {
+            m_fGain = gain;
+        }
+
         public int getCurrentBufferSize() {
-            return m_anBufferPointers[0];
+            return m_anSampleCounts[0] * m_nChannels * m_nSampleBytes;
         }
 
         public void reset() {
             for (int i = 0; i < m_nChannels; i++) {
-                /*
-                 * Points to byte location, implicitly assuming 16 bit samples.
-                 */
-                m_anBufferPointers[i] = i * 2;
+                m_anSampleCounts[i] = 0;
+            }
+        }
+    }
+
+    /** Counts bytes read from the encoded stream. */
+    private static class PositionInputStream extends FilterInputStream {
+
+        /** absolute position from the beginning of the encoded stream */
+        long position;
+
+        PositionInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0)
+                position++;
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long s = super.skip(n);
+            if (s > 0)
+                position += s;
+            return s;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /** skips until the position or the end of stream */
+        void skipTo(long target) throws IOException {
+            while (position < target) {
+                if (skip(target - position) <= 0 && read() < 0)
+                    break;
             }
         }
     }
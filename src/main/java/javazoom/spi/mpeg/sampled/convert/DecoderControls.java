@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.convert;
+
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.FloatControl;
+
+
+/**
+ * Equalizer and gain controls of {@link DecodedMpegAudioInputStream}.
+ * <p>
+ * controls may be set from any thread, a change is published as a new immutable
+ * {@link Snapshot} without locks, and the decoder applies it when the version changes.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class DecoderControls {
+
+    /** number of the equalizer bands, same as the subbands */
+    public static final int BANDS = 32;
+
+    /** Type of an equalizer band control, the value is log2 of the band factor in [-1, 1]. */
+    public static final class EqualizerBand extends FloatControl.Type {
+
+        private static final EqualizerBand[] TYPES = new EqualizerBand[BANDS];
+
+        static {
+            for (int b = 0; b < BANDS; b++) {
+                TYPES[b] = new EqualizerBand(b);
+            }
+        }
+
+        private final int band;
+
+        private EqualizerBand(int band) {
+            super("Equalizer Band " + band);
+            this.band = band;
+        }
+
+        /** @param band 0 ... {@link #BANDS} - 1 */
+        public static EqualizerBand of(int band) {
+            return TYPES[band];
+        }
+
+        /** @return band number */
+        public int band() {
+            return band;
+        }
+    }
+
+    /** Settings at a time, immutable. */
+    static final class Snapshot {
+
+        final long version;
+        /** log2 of the band factors */
+        final float[] bands;
+        /** linear */
+        final float gain;
+
+        Snapshot(long version, float[] bands, float gain) {
+            this.version = version;
+            this.bands = bands;
+            this.gain = gain;
+        }
+    }
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, new float[BANDS], 1));
+
+    private final Control[] controls;
+
+    DecoderControls() {
+        controls = new Control[1 + BANDS];
+        controls[0] = new GainControl();
+        for (int b = 0; b < BANDS; b++) {
+            controls[1 + b] = new BandControl(b);
+        }
+    }
+
+    /** @return the gain ({@link FloatControl.Type#MASTER_GAIN}) and the equalizer bands */
+    public Control[] getControls() {
+        return controls.clone();
+    }
+
+    /** @throws IllegalArgumentException not supported */
+    public Control getControl(Control.Type type) {
+        for (Control control : controls) {
+            if (control.getType().equals(type)) {
+                return control;
+            }
+        }
+        throw new IllegalArgumentException("unsupported control type: " + type);
+    }
+
+    /** */
+    public boolean isControlSupported(Control.Type type) {
+        for (Control control : controls) {
+            if (control.getType().equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return current settings */
+    Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /** sets all the bands at once */
+    void setBands(float[] bands) {
+        float[] values = new float[BANDS];
+        for (int b = 0; b < BANDS; b++) {
+            values[b] = Math.max(-1, Math.min(1, bands[b]));
+        }
+        snapshot.updateAndGet(s -> new Snapshot(s.version + 1, values, s.gain));
+    }
+
+    /** Master gain in dB, applied to the synthesis output. */
+    private final class GainControl extends FloatControl {
+
+        private volatile float value;
+
+        GainControl() {
+            super(Type.MASTER_GAIN, -80f, 12f, 0.01f, -1, 0f, "dB", "-80", "0", "+12");
+        }
+
+        /** the minimum mutes */
+        @Override
+        public void setValue(float newValue) {
+            super.setValue(newValue);
+            value = newValue;
+            float gain = newValue <= getMinimum() ? 0 : (float) Math.pow(10, newValue / 20d);
+            snapshot.updateAndGet(s -> new Snapshot(s.version + 1, s.bands, gain));
+        }
+
+        @Override
+        public float getValue() {
+            return value;
+        }
+    }
+
+    /** An equalizer band. */
+    private final class BandControl extends FloatControl {
+
+        private final int band;
+
+        BandControl(int band) {
+            super(EqualizerBand.of(band), -1f, 1f, 0.01f, -1, 0f, "");
+            this.band = band;
+        }
+
+        @Override
+        public void setValue(float newValue) {
+            super.setValue(newValue);
+            snapshot.updateAndGet(s -> {
+                float[] bands = s.bands.clone();
+                bands[band] = newValue;
+                return new Snapshot(s.version + 1, bands, s.gain);
+            });
+        }
+
+        @Override
+        public float getValue() {
+            return snapshot.get().bands[band];
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.convert;
+
+/**
+ * Receives the status of every decoded frame of {@link DecodedMpegAudioInputStream}.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+@FunctionalInterface
+public interface FrameListener {
+
+    /**
+     * Called in the decoding thread, keep it short.
+     *
+     * @param status valid only during the call, use {@link DecodeStatus#copyFrom(DecodeStatus)} to keep it
+     */
+    void frameDecoded(DecodeStatus status);
+}
@@ -47,6 +47,7 @@ public class MpegFormatConversionProvider extends TEncodingFormatConversionProvi
 
     private static final AudioFormat.Encoding MP3 = Encodings.getEncoding("MP3");
     private static final AudioFormat.Encoding PCM_SIGNED = Encodings.getEncoding("PCM_SIGNED");
+    private static final AudioFormat.Encoding PCM_FLOAT = Encodings.getEncoding("PCM_FLOAT");
 
     private static final AudioFormat[] INPUT_FORMATS = {
             // mono
@@ -64,6 +65,24 @@ public class MpegFormatConversionProvider extends TEncodingFormatConversionProvi
             // stereo, 16 bit signed
             new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 16, 2, 4, NOT_SPECIFIED, false),
             new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 16, 2, 4, NOT_SPECIFIED, true),
+            // mono, 24 bit packed signed
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 24, 1, 3, NOT_SPECIFIED, false),
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 24, 1, 3, NOT_SPECIFIED, true),
+            // stereo, 24 bit packed signed
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 24, 2, 6, NOT_SPECIFIED, false),
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 24, 2, 6, NOT_SPECIFIED, true),
+            // mono, 32 bit signed
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 32, 1, 4, NOT_SPECIFIED, false),
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 32, 1, 4, NOT_SPECIFIED, true),
+            // stereo, 32 bit signed
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 32, 2, 8, NOT_SPECIFIED, false),
+            new AudioFormat(PCM_SIGNED, NOT_SPECIFIED, 32, 2, 8, NOT_SPECIFIED, true),
+            // mono, 32 bit float, the synthesis output without quantization
+            new AudioFormat(PCM_FLOAT, NOT_SPECIFIED, 32, 1, 4, NOT_SPECIFIED, false),
+            new AudioFormat(PCM_FLOAT, NOT_SPECIFIED, 32, 1, 4, NOT_SPECIFIED, true),
+            // stereo, 32 bit float
+            new AudioFormat(PCM_FLOAT, NOT_SPECIFIED, 32, 2, 8, NOT_SPECIFIED, false),
+            new AudioFormat(PCM_FLOAT, NOT_SPECIFIED, 32, 2, 8, NOT_SPECIFIED, true),
     };
 
     /**
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Leading signatures of containers those are not a plain MPEG audio stream.
+ * <p>
+ * checked against the first bytes of a stream before the bitstream is created,
+ * so that other formats are rejected without a sync word search.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+enum ContainerSignature {
+
+    /** may contain MPEG audio (format tag 0x55) */
+    WAV(0, "RIFF", false, 8, "WAVE"),
+    AU(0, ".snd", false),
+    AIFF(0, "FORM", false, 8, "AIFF"),
+    AIFC(0, "FORM", false, 8, "AIFC"),
+    CAF(0, "caff", false),
+    APE(0, "MAC", true),
+    FLAC(0, "FLAC", true),
+    /** shoutcast, supported */
+    ICY(0, "ICY", true),
+    OGG(0, "OGG", true),
+    MP4(4, "ftyp", false),
+    WAVPACK(0, "wvpk", false),
+    MIDI(0, "MThd", false);
+
+    private final int offset;
+    /** upper case when ignoring case */
+    private final byte[] magic;
+    private final boolean ignoreCase;
+    private final int subOffset;
+    private final byte[] subMagic;
+
+    ContainerSignature(int offset, String magic, boolean ignoreCase, int subOffset, String subMagic) {
+        this.offset = offset;
+        this.magic = magic.getBytes(StandardCharsets.US_ASCII);
+        this.ignoreCase = ignoreCase;
+        this.subOffset = subOffset;
+        this.subMagic = subMagic != null ? subMagic.getBytes(StandardCharsets.US_ASCII) : null;
+    }
+
+    ContainerSignature(int offset, String magic, boolean ignoreCase) {
+        this(offset, magic, ignoreCase, 0, null);
+    }
+
+    /** @return true if the bytes match the signature */
+    private boolean matches(byte[] head, int length) {
+        if (!matches(head, length, offset, magic, ignoreCase)) {
+            return false;
+        }
+        return subMagic == null || matches(head, length, subOffset, subMagic, false);
+    }
+
+    /** */
+    private static boolean matches(byte[] head, int length, int offset, byte[] magic, boolean ignoreCase) {
+        if (offset + magic.length > length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            int c = head[offset + i];
+            if (ignoreCase && c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if (c != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** first byte of a stream to candidates, upper cased for case-insensitive ones */
+    private static final ContainerSignature[][] TABLE = new ContainerSignature[256][];
+
+    /** signatures not at offset 0 */
+    private static final ContainerSignature[] OTHERS;
+
+    static {
+        List<ContainerSignature> others = new ArrayList<>();
+        for (ContainerSignature signature : values()) {
+            if (signature.offset != 0) {
+                others.add(signature);
+                continue;
+            }
+            int c = signature.magic[0] & 0xff;
+            add(c, signature);
+            if (signature.ignoreCase && c >= 'A' && c <= 'Z') {
+                add(c + ('a' - 'A'), signature);
+            }
+        }
+        OTHERS = others.toArray(ContainerSignature[]::new);
+    }
+
+    /** */
+    private static void add(int c, ContainerSignature signature) {
+        ContainerSignature[] entries = TABLE[c];
+        if (entries == null) {
+            TABLE[c] = new ContainerSignature[] {signature};
+        } else {
+            ContainerSignature[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[entries.length] = signature;
+            TABLE[c] = grown;
+        }
+    }
+
+    /**
+     * @param head the first bytes of a stream
+     * @param length valid bytes in head
+     * @return null when no signature matches, may be a MPEG audio stream
+     */
+    static ContainerSignature of(byte[] head, int length) {
+        if (length > 0) {
+            ContainerSignature[] entries = TABLE[head[0] & 0xff];
+            if (entries != null) {
+                for (ContainerSignature signature : entries) {
+                    if (signature.matches(head, length)) {
+                        return signature;
+                    }
+                }
+            }
+        }
+        for (ContainerSignature signature : OTHERS) {
+            if (signature.matches(head, length)) {
+                return signature;
+            }
+        }
+        return null;
+    }
+}
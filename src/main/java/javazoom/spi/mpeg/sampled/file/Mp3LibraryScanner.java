@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Probes mp3 files under a directory concurrently.
+ * <p>
+ * files are probed by {@link MpegAudioFileReader#getAudioFileFormat(Path)},
+ * so only the tags and the first frames are read.
+ * at most {@code parallelism * 2} files are in flight, a directory of any size
+ * is walked with constant memory.
+ * <pre>
+ * Mp3LibraryScanner.Stats stats = new Mp3LibraryScanner(8, 5000).scan(root, (path, format) -> ...);
+ * </pre>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class Mp3LibraryScanner {
+
+    private static final Logger logger = getLogger(Mp3LibraryScanner.class.getName());
+
+    /**
+     * receives results, methods are called concurrently from worker threads.
+     * an exception thrown by a method is counted as {@link Stats#getListenerErrors()} and logged,
+     * the scan goes on.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /** a file is probed */
+        void found(Path path, MpegAudioFileFormat format);
+
+        /**
+         * a file is not an mp3, cannot be read or timed out.
+         *
+         * @param e {@link UnsupportedAudioFileException}, {@link IOException} or {@link TimeoutException}
+         */
+        default void failed(Path path, Exception e) {
+        }
+    }
+
+    /** counters of a scan */
+    public static final class Stats {
+
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong listenerErrors = new AtomicLong();
+        private final long start = System.nanoTime();
+        private volatile long end;
+
+        /** @return probed files */
+        public long getFiles() {
+            return files.get();
+        }
+
+        /** @return files not probed, excluding timeouts */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /** @return timed out files */
+        public long getTimeouts() {
+            return timeouts.get();
+        }
+
+        /** @return exceptions thrown by the listener */
+        public long getListenerErrors() {
+            return listenerErrors.get();
+        }
+
+        /** @return bytes read for probing */
+        public long getBytesRead() {
+            return bytesRead.get();
+        }
+
+        /** @return average bytes read for probing a file */
+        public long getBytesPerFile() {
+            long n = files.get();
+            return n == 0 ? 0 : bytesRead.get() / n;
+        }
+
+        /** @return elapsed time in nano seconds */
+        public long getElapsedNanos() {
+            return (end != 0 ? end : System.nanoTime()) - start;
+        }
+
+        /** @return probed files per second */
+        public double getFilesPerSecond() {
+            long elapsed = getElapsedNanos();
+            return elapsed == 0 ? 0 : files.get() * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "files: %d, failures: %d, timeouts: %d, listener errors: %d, %.1f files/s, %d bytes/file",
+                    getFiles(), getFailures(), getTimeouts(), getListenerErrors(), getFilesPerSecond(), getBytesPerFile());
+        }
+    }
+
+    private final int parallelism;
+
+    private final long timeoutMillis;
+
+    private final MpegAudioFileReader reader = new MpegAudioFileReader();
+
+    private Predicate<Path> filter = path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".mp3");
+
+    /**
+     * @param parallelism number of worker threads
+     * @param timeoutMillis per file timeout, 0 for no timeout
+     */
+    public Mp3LibraryScanner(int parallelism, long timeoutMillis) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /** parallelism is the number of processors, no timeout */
+    public Mp3LibraryScanner() {
+        this(Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    /** @param filter regular files to probe, default is "*.mp3" ignoring case */
+    public void setFilter(Predicate<Path> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Walks the directory tree and probes files, blocks until all files are done.
+     * a timed out probe is interrupted and reported as failed, its result is discarded.
+     */
+    public Stats scan(Path root, Listener listener) throws IOException, InterruptedException {
+        Stats stats = new Stats();
+        int inFlight = parallelism * 2;
+        Semaphore permits = new Semaphore(inFlight);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, daemon("mp3spi-scanner"));
+        ScheduledExecutorService watchdog = timeoutMillis > 0 ? Executors.newSingleThreadScheduledExecutor(daemon("mp3spi-scanner-watchdog")) : null;
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> i = paths.filter(Files::isRegularFile).filter(filter).iterator();
+            while (i.hasNext()) {
+                Path path = i.next();
+                permits.acquire();
+                try {
+                    workers.execute(() -> {
+                        try {
+                            probe(path, listener, stats, watchdog);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            permits.acquire(inFlight);
+        } finally {
+            workers.shutdownNow();
+            if (watchdog != null) {
+                watchdog.shutdownNow();
+            }
+            stats.end = System.nanoTime();
+        }
+logger.log(Level.DEBUG, "scan: " + root + ", " + stats);
+        return stats;
+    }
+
+    /**
+     * Probes a file on the current worker thread,
+     * the watchdog interrupts the worker only while this probe is running.
+     */
+    private void probe(Path path, Listener listener, Stats stats, ScheduledExecutorService watchdog) {
+        Thread worker = Thread.currentThread();
+        AtomicBoolean reported = new AtomicBoolean();
+        Object lock = new Object();
+        ScheduledFuture<?> timer = null;
+        if (watchdog != null) {
+            timer = watchdog.schedule(() -> {
+                synchronized (lock) {
+                    if (reported.compareAndSet(false, true)) {
+                        worker.interrupt();
+                        stats.timeouts.incrementAndGet();
+                    } else {
+                        return;
+                    }
+                }
+                call(() -> listener.failed(path, new TimeoutException("probe timed out: " + timeoutMillis + "ms")), path, stats);
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        MpegAudioFileFormat found = null;
+        Exception failure = null;
+        try {
+            AudioFileFormat format = reader.getAudioFileFormat(path);
+            MpegAudioFileFormat mpegFormat = (MpegAudioFileFormat) format;
+            if (reported.compareAndSet(false, true)) {
+                Object bytes = format.properties().get("mp3.probe.bytes");
+                if (bytes instanceof Long) {
+                    stats.bytesRead.addAndGet((Long) bytes);
+                }
+                stats.files.incrementAndGet();
+                found = mpegFormat;
+            }
+        } catch (UnsupportedAudioFileException | IOException | RuntimeException e) {
+            if (reported.compareAndSet(false, true)) {
+                stats.failures.incrementAndGet();
+                failure = e instanceof RuntimeException ? new IOException(e) : e;
+            }
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+                synchronized (lock) {
+                    reported.set(true);
+                }
+                // an interrupt for this file must not leak into the next one
+                Thread.interrupted();
+            }
+        }
+        // out of the probe bookkeeping and the watchdog
+        if (found != null) {
+            MpegAudioFileFormat format = found;
+            call(() -> listener.found(path, format), path, stats);
+        } else if (failure != null) {
+            Exception e = failure;
+            call(() -> listener.failed(path, e), path, stats);
+        }
+    }
+
+    /** a listener exception is counted and logged, it does not stop the scan */
+    private static void call(Runnable callback, Path path, Stats stats) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            stats.listenerErrors.incrementAndGet();
+            logger.log(Level.WARNING, "listener failed: " + path, e);
+        }
+    }
+
+    /** */
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + n.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -69,12 +69,22 @@ public class MpegAudioFileFormat extends TAudioFileFormat {
      * <li><b>mp3.frequency.hz</b> [Integer], sampling rate in hz.
      * <li><b>mp3.bitrate.nominal.bps</b> [Integer], nominal bitrate in bps.
      * <li><b>mp3.length.bytes</b> [Integer], length in bytes.
-     * <li><b>mp3.length.frames</b> [Integer], length in frames.
+     * <li><b>mp3.length.frames</b> [Integer], length in frames, exact when the Xing/Info/VBRI header exists
+     * or {@code mp3spi.exactLength} is set for a file.
      * <li><b>mp3.framesize.bytes</b> [Integer], framesize of the first frame. framesize is not constant for VBR streams.
      * <li><b>mp3.framerate.fps</b> [Float], framerate in frames per seconds.
      * <li><b>mp3.header.pos</b> [Integer], position of first audio header (or ID3v2 size).
+     * <li><b>mp3.riff.data.offset</b> [Long], payload offset of the data chunk when the stream is RIFF/WAVE (format 0x55).
+     * <li><b>mp3.riff.data.length</b> [Long], payload length of the data chunk, {@code mp3.length.bytes} is this.
      * <li><b>mp3.vbr</b> [Boolean], vbr flag.
      * <li><b>mp3.vbr.scale</b> [Integer], vbr scale.
+     * <li><b>mp3.vbr.header</b> [String], "Xing", "Info" or "VBRI" when the first frame has the header.
+     * <li><b>mp3.vbr.frames</b> [Integer], exact number of audio frames from the Xing/Info/VBRI header.
+     * <li><b>mp3.vbr.bytes</b> [Integer], exact stream bytes from the Xing/Info/VBRI header.
+     * <li><b>mp3.vbr.toc</b> byte[100], seek table, time percent to byte position / 256.
+     * <li><b>mp3.lame.encoder</b> [String], LAME tag encoder version.
+     * <li><b>mp3.lame.delay</b> [Integer], encoder delay in samples.
+     * <li><b>mp3.lame.padding</b> [Integer], encoder padding in samples.
      * <li><b>mp3.crc</b> [Boolean], crc flag.
      * <li><b>mp3.original</b> [Boolean], original flag.
      * <li><b>mp3.copyright</b> [Boolean], copyright flag.
@@ -90,7 +100,11 @@ public class MpegAudioFileFormat extends TAudioFileFormat {
      * <li><b>mp3.id3tag.orchestra</b> [String], ID3 tag v2 orchestra info.
      * <li><b>mp3.id3tag.length</b> [String], ID3 tag v2 file length in seconds.
      * <li><b>mp3.id3tag.v2</b> [InputStream], ID3v2 frames.
+     * <li><b>mp3.id3tag.v2.tag</b> [Id3v2Tag], ID3v2 frame catalog, values are decoded on demand, only from a memory mapped file.
      * <li><b>mp3.id3tag.v2.version</b> [String], ID3v2 major version (2=v2.2.0, 3=v2.3.0, 4=v2.4.0).
+     * <li><b>mp3.probe.bytes</b> [Long], bytes read from the source while probing, those a marked source has to keep.
+     * <li><b>mp3.apetag.key</b> [String], APEv2 tag text item (key in lower case), only from a file or a seekable channel.
+     * <li><b>mp3.lyrics3tag.id</b> [String], Lyrics3v2 field (id in lower case, e.g. lyr), only from a file or a seekable channel.
      * <li><b>mp3.shoutcast.metadata.key</b> [String], Shoutcast meta key with matching value.
      * <br>For instance :
      * <br>mp3.shoutcast.metadata.icy-irc=#shoutcast
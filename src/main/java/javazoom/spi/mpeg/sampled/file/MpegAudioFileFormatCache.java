@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Cache of {@link MpegAudioFileFormat} keyed by (path, size, last modified time).
+ * <p>
+ * entries are kept in a compact serialized form, in a bounded LRU memory tier
+ * and optionally in a directory that survives restarts.
+ * an entry is invalidated when the file size or the last modified time changes.
+ * properties of primitive wrappers, strings and byte arrays are cached,
+ * others ({@code mp3.id3tag.v2} stream, {@code mp3.id3tag.v2.tag} catalog, {@code mp3.index})
+ * are not restored.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class MpegAudioFileFormatCache {
+
+    private static final Logger logger = getLogger(MpegAudioFileFormatCache.class.getName());
+
+    /** "MAFF" */
+    private static final int MAGIC = 0x4d41_4646;
+
+    private static final int VERSION = 1;
+
+    private static final AudioFormat.Encoding[] ENCODINGS = {
+            MpegEncoding.MPEG1L1, MpegEncoding.MPEG1L2, MpegEncoding.MPEG1L3,
+            MpegEncoding.MPEG2L1, MpegEncoding.MPEG2L2, MpegEncoding.MPEG2L3,
+            MpegEncoding.MPEG2DOT5L1, MpegEncoding.MPEG2DOT5L2, MpegEncoding.MPEG2DOT5L3,
+    };
+
+    /** serialized entries, access ordered */
+    private final Map<String, byte[]> memory;
+
+    /** nullable */
+    private final Path directory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacity max entries in memory
+     * @param directory disk tier, null for memory only
+     */
+    public MpegAudioFileFormatCache(int capacity, Path directory) throws IOException {
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.directory = directory;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /** @return hits in memory */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return hits on disk, those are promoted to memory */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /** @return misses including stale entries */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @param attributes current attributes of the file
+     * @return null when not cached or the file is changed
+     */
+    public MpegAudioFileFormat get(Path path, BasicFileAttributes attributes) {
+        String key = key(path);
+        byte[] entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        boolean disk = false;
+        if (entry == null && directory != null) {
+            try {
+                entry = Files.readAllBytes(file(key));
+                disk = true;
+            } catch (NoSuchFileException e) {
+                // not cached
+            } catch (IOException e) {
+                logger.log(Level.DEBUG, "cannot read cache: " + key + ", " + e.getMessage());
+            }
+        }
+        if (entry != null) {
+            try {
+                MpegAudioFileFormat format = read(entry, key, attributes);
+                if (format != null) {
+                    if (disk) {
+                        synchronized (memory) {
+                            memory.put(key, entry);
+                        }
+                        diskHits.incrementAndGet();
+                    } else {
+                        hits.incrementAndGet();
+                    }
+                    return format;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.DEBUG, "broken cache: " + key + ", " + e.getMessage());
+            }
+            remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param attributes attributes of the file read before probing
+     */
+    public void put(Path path, BasicFileAttributes attributes, AudioFileFormat format) {
+        String key = key(path);
+        byte[] entry;
+        try {
+            entry = write(key, attributes, format);
+        } catch (IOException e) {
+            logger.log(Level.DEBUG, "cannot serialize: " + key + ", " + e.getMessage());
+            return;
+        }
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        if (directory != null) {
+            try {
+                Path file = file(key);
+                Path temporary = Files.createTempFile(directory, null, ".tmp");
+                Files.write(temporary, entry);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                logger.log(Level.DEBUG, "cannot write cache: " + key + ", " + e.getMessage());
+            }
+        }
+    }
+
+    /** drops all the entries of both tiers */
+    public void clear() throws IOException {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (directory != null) {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(".aff")) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /** */
+    private void remove(String key) {
+        synchronized (memory) {
+            memory.remove(key);
+        }
+        if (directory != null) {
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                logger.log(Level.DEBUG, "cannot remove cache: " + key + ", " + e.getMessage());
+            }
+        }
+    }
+
+    /** */
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /** the key itself is stored in the file, so hash collisions are detected */
+    private Path file(String key) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < key.length(); i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        return directory.resolve(String.format("%016x.aff", h));
+    }
+
+    /** */
+    private static byte[] write(String key, BasicFileAttributes attributes, AudioFileFormat aff) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        DataOutputStream dos = new DataOutputStream(baos);
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeUTF(key);
+        dos.writeLong(attributes.size());
+        dos.writeLong(attributes.lastModifiedTime().toMillis());
+        AudioFormat format = aff.getFormat();
+        dos.writeUTF(aff.getType().toString());
+        dos.writeUTF(format.getEncoding().toString());
+        dos.writeFloat(format.getSampleRate());
+        dos.writeInt(format.getSampleSizeInBits());
+        dos.writeInt(format.getChannels());
+        dos.writeInt(format.getFrameSize());
+        dos.writeFloat(format.getFrameRate());
+        dos.writeBoolean(format.isBigEndian());
+        dos.writeInt(aff.getFrameLength());
+        dos.writeInt(aff.getByteLength());
+        writeMap(dos, aff.properties());
+        writeMap(dos, format.properties());
+        dos.flush();
+        return baos.toByteArray();
+    }
+
+    /**
+     * @return null when the entry is not for the key or the file version
+     */
+    private static MpegAudioFileFormat read(byte[] entry, String key, BasicFileAttributes attributes) throws IOException {
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(entry));
+        if (dis.readInt() != MAGIC || dis.readInt() != VERSION || !dis.readUTF().equals(key) ||
+                dis.readLong() != attributes.size() || dis.readLong() != attributes.lastModifiedTime().toMillis()) {
+            return null;
+        }
+        String type = dis.readUTF();
+        AudioFormat.Encoding encoding = encoding(dis.readUTF());
+        float sampleRate = dis.readFloat();
+        int sampleSizeInBits = dis.readInt();
+        int channels = dis.readInt();
+        int frameSize = dis.readInt();
+        float frameRate = dis.readFloat();
+        boolean bigEndian = dis.readBoolean();
+        int frameLength = dis.readInt();
+        int byteLength = dis.readInt();
+        Map<String, Object> affProperties = readMap(dis);
+        Map<String, Object> afProperties = readMap(dis);
+        AudioFormat format = new MpegAudioFormat(encoding, sampleRate, sampleSizeInBits, channels, frameSize, frameRate, bigEndian, afProperties);
+        return new MpegAudioFileFormat(type.equals(MpegFileFormatType.MPEG.toString()) ? MpegFileFormatType.MPEG : MpegFileFormatType.MP3,
+                format, frameLength, byteLength, affProperties);
+    }
+
+    /** */
+    private static AudioFormat.Encoding encoding(String name) throws IOException {
+        for (AudioFormat.Encoding encoding : ENCODINGS) {
+            if (encoding.toString().equals(name)) {
+                return encoding;
+            }
+        }
+        throw new IOException("unknown encoding: " + name);
+    }
+
+    /** values those cannot be restored are skipped */
+    private static void writeMap(DataOutputStream dos, Map<String, Object> map) throws IOException {
+        int n = 0;
+        for (Object value : map.values()) {
+            if (tag(value) != 0) {
+                n++;
+            }
+        }
+        dos.writeInt(n);
+        for (Map.Entry<String, Object> e : map.entrySet()) {
+            Object value = e.getValue();
+            char tag = tag(value);
+            if (tag == 0) {
+                continue;
+            }
+            dos.writeUTF(e.getKey());
+            dos.writeByte(tag);
+            switch (tag) {
+            case 'S' -> writeBytes(dos, ((String) value).getBytes(StandardCharsets.UTF_8));
+            case 'I' -> dos.writeInt((Integer) value);
+            case 'J' -> dos.writeLong((Long) value);
+            case 'Z' -> dos.writeBoolean((Boolean) value);
+            case 'F' -> dos.writeFloat((Float) value);
+            case 'D' -> dos.writeDouble((Double) value);
+            case 'B' -> writeBytes(dos, (byte[]) value);
+            }
+        }
+    }
+
+    /** @return 0 for not cacheable */
+    private static char tag(Object value) {
+        if (value instanceof String) return 'S';
+        if (value instanceof Integer) return 'I';
+        if (value instanceof Long) return 'J';
+        if (value instanceof Boolean) return 'Z';
+        if (value instanceof Float) return 'F';
+        if (value instanceof Double) return 'D';
+        if (value instanceof byte[]) return 'B';
+        return 0;
+    }
+
+    /** */
+    private static Map<String, Object> readMap(DataInputStream dis) throws IOException {
+        int n = dis.readInt();
+        Map<String, Object> map = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            String key = dis.readUTF();
+            char tag = (char) dis.readByte();
+            Object value = switch (tag) {
+                case 'S' -> new String(readBytes(dis), StandardCharsets.UTF_8);
+                case 'I' -> dis.readInt();
+                case 'J' -> dis.readLong();
+                case 'Z' -> dis.readBoolean();
+                case 'F' -> dis.readFloat();
+                case 'D' -> dis.readDouble();
+                case 'B' -> readBytes(dis);
+                default -> throw new IOException("unknown tag: " + tag);
+            };
+            map.put(key, value);
+        }
+        return map;
+    }
+
+    /** */
+    private static void writeBytes(DataOutputStream dos, byte[] bytes) throws IOException {
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    /** */
+    private static byte[] readBytes(DataInputStream dis) throws IOException {
+        byte[] bytes = new byte[dis.readInt()];
+        dis.readFully(bytes);
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "MpegAudioFileFormatCache{hits: " + hits + ", disk hits: " + diskHits + ", misses: " + misses + "}";
+    }
+}
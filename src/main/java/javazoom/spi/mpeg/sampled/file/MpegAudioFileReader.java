@@ -17,7 +17,9 @@
 package javazoom.spi.mpeg.sampled.file;
 
 import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
@@ -25,12 +27,20 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Scanner;
 import javax.sound.sampled.AudioFileFormat;
@@ -42,7 +52,9 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 import javazoom.jl.decoder.Bitstream;
 import javazoom.jl.decoder.Header;
 import javazoom.spi.mpeg.sampled.file.tag.IcyInputStream;
+import javazoom.spi.mpeg.sampled.file.tag.Id3v2Tag;
 import javazoom.spi.mpeg.sampled.file.tag.MP3Tag;
+import javazoom.spi.mpeg.sampled.file.tag.TailTags;
 import org.tritonus.share.sampled.file.TAudioFileReader;
 import vavi.sound.LimitedInputStream;
 import vavi.util.StringUtil;
@@ -56,7 +68,19 @@ import static java.lang.System.getLogger;
  * system properties
  * <ul>
  *  <li>{@code mp3spi.weak} ... boolean: to skip controls, default {@code false}</li>
- *  <li>{@code mp3spi.bufferSize} ... max buffer size for parsing mp3, default 20MiB</li>
+ *  <li>{@code mp3spi.bufferSize} ... max buffer size for parsing mp3, default 20MiB.
+ *      a probe for an audio input stream marks only the ID3v2 tag size and 64KiB more,
+ *      bytes actually read are reported as {@code mp3.probe.bytes}</li>
+ *  <li>{@code mp3spi.mmap} ... boolean: read files through a memory mapped buffer, default {@code true}</li>
+ *  <li>{@code mp3spi.index} ... boolean: build a frame index for seeking when reading a file, default {@code false}</li>
+ *  <li>{@code mp3spi.index.sidecar} ... boolean: persist the frame index next to the file, default {@code false}</li>
+ *  <li>{@code mp3spi.exactLength} ... boolean: count frames of a file without a Xing/Info/VBRI header
+ *      in parallel for exact {@code mp3.length.frames} and {@code duration}, default {@code false}</li>
+ *  <li>{@code mp3spi.syncBudget} ... bytes to search for the first frame past the ID3v2 tag, default 32KiB.
+ *      a stream is probed within the 64KiB mark limit anyway</li>
+ *  <li>{@code mp3spi.cache} ... boolean: cache file formats by path, size and last modified time, default {@code false}</li>
+ *  <li>{@code mp3spi.cache.size} ... int: max entries of the cache in memory, default 1024</li>
+ *  <li>{@code mp3spi.cache.dir} ... directory to persist the cache, default none (memory only)</li>
  * </ul>
  *
  * @author JavaZOOM mp3spi@javazoom.net http://www.javazoom.net
@@ -99,6 +123,10 @@ public class MpegAudioFileReader extends TAudioFileReader {
     public static final String VERSION;
 //    private final int SYNC = 0xFFE00000;
     private final boolean weak;
+    private final boolean mmap;
+    private final boolean indexing;
+    private final boolean sidecar;
+    private final boolean exact;
     private final AudioFormat.Encoding[][] sm_aEncodings = {
             {MpegEncoding.MPEG2L1, MpegEncoding.MPEG2L2, MpegEncoding.MPEG2L3},
             {MpegEncoding.MPEG1L1, MpegEncoding.MPEG1L2, MpegEncoding.MPEG1L3},
@@ -114,8 +142,47 @@ public class MpegAudioFileReader extends TAudioFileReader {
     public static final int INITIAL_READ_LENGTH = Integer.parseInt(System.getProperty("mp3spi.bufferSize", "20971520"));
     private static final int MARK_LIMIT = INITIAL_READ_LENGTH + 1;
 
+    /**
+     * bytes a probe may read past the ID3v2 tag, for RIFF chunks,
+     * the bitstream look ahead and a few frames.
+     */
+    private static final int PROBE_LENGTH = 64 * 1024;
+
+    /**
+     * bytes searched for the first frame past the ID3v2 tag by {@link MpegSyncScanner},
+     * a stream without a frame there is not taken as MPEG audio.
+     */
+    private static final int SYNC_BUDGET = Integer.parseInt(System.getProperty("mp3spi.syncBudget", "32768"));
+
     private static final String[] id3v1genres;
 
+    /** shared by all readers, null when {@code mp3spi.cache} is disabled */
+    private static final MpegAudioFileFormatCache cache;
+
+    static {
+        MpegAudioFileFormatCache c = null;
+        if (Boolean.parseBoolean(System.getProperty("mp3spi.cache", "false"))) {
+            int size = Integer.parseInt(System.getProperty("mp3spi.cache.size", "1024"));
+            String dir = System.getProperty("mp3spi.cache.dir");
+            try {
+                c = new MpegAudioFileFormatCache(size, dir != null ? Path.of(dir) : null);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "cache directory is not available: " + dir + ", " + e.getMessage());
+                try {
+                    c = new MpegAudioFileFormatCache(size, null);
+                } catch (IOException f) {
+                    throw new IllegalStateException(f);
+                }
+            }
+        }
+        cache = c;
+    }
+
+    /** @return the shared cache, null when {@code mp3spi.cache} is disabled */
+    public static MpegAudioFileFormatCache getCache() {
+        return cache;
+    }
+
     static {
         Scanner scanner = new Scanner(MpegAudioFileReader.class.getResourceAsStream("/genres.properties"));
         List<String> genres = new ArrayList<>();
@@ -130,6 +197,10 @@ public class MpegAudioFileReader extends TAudioFileReader {
         super(MARK_LIMIT, true);
         logger.log(Level.TRACE, "MP3SPI " + VERSION);
         weak = Boolean.parseBoolean(System.getProperty("mp3spi.weak", "false"));
+        mmap = Boolean.parseBoolean(System.getProperty("mp3spi.mmap", "true"));
+        indexing = Boolean.parseBoolean(System.getProperty("mp3spi.index", "false"));
+        sidecar = Boolean.parseBoolean(System.getProperty("mp3spi.index.sidecar", "false"));
+        exact = Boolean.parseBoolean(System.getProperty("mp3spi.exactLength", "false"));
     }
 
     /**
@@ -137,7 +208,74 @@ public class MpegAudioFileReader extends TAudioFileReader {
      */
     @Override
     public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
-        return super.getAudioFileFormat(file);
+        return getAudioFileFormat(file.toPath());
+    }
+
+    /**
+     * Returns AudioFileFormat from Path.
+     * tail tags (ID3v1, APEv2, Lyrics3v2) are looked up by positional reads.
+     * when {@code mp3spi.cache} is enabled, an unchanged file is not probed again.
+     */
+    public AudioFileFormat getAudioFileFormat(Path path) throws UnsupportedAudioFileException, IOException {
+        if (cache == null) {
+            return probe(path);
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        AudioFileFormat format = cache.get(path, attributes);
+        if (format == null) {
+            format = probe(path);
+            cache.put(path, attributes, format);
+        }
+        return format;
+    }
+
+    /** */
+    private AudioFileFormat probe(Path path) throws UnsupportedAudioFileException, IOException {
+        MappedInputStream mis = map(path.toFile());
+        if (mis != null) {
+            return getAudioFileFormat(mis, mis.length(), TailTags.Source.of(mis.buffer()), true);
+        }
+        try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+            TailTags.Source source = TailTags.Source.of(channel);
+            // the mp3.id3tag.v2 stream is read after the channel is closed
+            TailTags.Source tail = (position, size) -> {
+                if (channel.isOpen()) {
+                    return source.read(position, size);
+                }
+                try (SeekableByteChannel reopened = Files.newByteChannel(path)) {
+                    return TailTags.Source.of(reopened).read(position, size);
+                }
+            };
+            return getAudioFileFormat(Channels.newInputStream(channel), channel.size(), tail, true);
+        }
+    }
+
+    /**
+     * Returns AudioFileFormat from a seekable channel at its current position.
+     * tail tags (ID3v1, APEv2, Lyrics3v2) are looked up by positional reads,
+     * the channel is not closed.
+     */
+    public AudioFileFormat getAudioFileFormat(SeekableByteChannel channel) throws UnsupportedAudioFileException, IOException {
+        long start = channel.position();
+        long length = channel.size();
+        InputStream inputStream = Channels.newInputStream(channel);
+        TailTags.Source source = TailTags.Source.of(channel);
+        return getAudioFileFormat(inputStream, length - start, (position, size) -> source.read(start + position, size), true);
+    }
+
+    /**
+     * @return null when {@code mp3spi.mmap} is disabled or the file cannot be mapped
+     */
+    private MappedInputStream map(File file) {
+        if (!mmap) {
+            return null;
+        }
+        try {
+            return MappedInputStream.open(file.toPath());
+        } catch (IOException e) {
+            logger.log(Level.DEBUG, "cannot map: " + file + ", " + e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -173,61 +311,67 @@ public class MpegAudioFileReader extends TAudioFileReader {
      */
     @Override
     public AudioFileFormat getAudioFileFormat(InputStream inputStream, long mediaLength) throws UnsupportedAudioFileException, IOException {
+        return getAudioFileFormat(inputStream, mediaLength, null, true);
+    }
+
+    /**
+     * @param tail positional reader for tail tags relative to the start of the stream,
+     *             null when the stream is not random accessible
+     * @param lookupTail false not to read a sequential stream up to the end for ID3v1,
+     *                   the probe then reads only the ID3v2 tag and a few frames
+     */
+    private AudioFileFormat getAudioFileFormat(InputStream inputStream, long mediaLength, TailTags.Source tail, boolean lookupTail) throws UnsupportedAudioFileException, IOException {
         logger.log(Level.TRACE, ">MpegAudioFileReader.getAudioFileFormat(InputStream inputStream, long mediaLength): begin");
 
         MpegContext context = new MpegContext();
+        ProbeInputStream probe = new ProbeInputStream(inputStream);
+        inputStream = probe;
 
         context.mLength = (int) mediaLength;
         int size = inputStream.available();
-        // https://github.com/umjammer/mp3spi/issues/5
-        inputStream = new LimitedInputStream(inputStream);
-        PushbackInputStream pis = new PushbackInputStream(inputStream, MARK_LIMIT);
         byte[] head = new byte[22];
-        int r = pis.read(head);
-        assert r == head.length : "read header bytes";
+        if (tail == null) {
+            // https://github.com/umjammer/mp3spi/issues/5
+            inputStream = new LimitedInputStream(inputStream);
+        }
+        // only the header is pushed back, the bitstream does its own buffering
+        PushbackInputStream pis = new PushbackInputStream(inputStream, head.length);
+        int r = pis.readNBytes(head, 0, head.length);
 logger.log(Level.TRACE, "InputStream : " + inputStream + " =>" + new String(head));
 
-        // Check for WAV, AU, and AIFF, Ogg Vorbis, Flac, MAC file formats.
-        // Next check for Shoutcast (supported) and OGG (unsupported) streams.
-        if ((head[0] == 'R') && (head[1] == 'I') && (head[2] == 'F') && (head[3] == 'F') && (head[8] == 'W') && (head[9] == 'A') && (head[10] == 'V') && (head[11] == 'E')) {
-            logger.log(Level.TRACE, "RIFF/WAV stream found");
-            if ((head[12] == 'f') && (head[13] == 'm') && (head[14] == 't')) {
-                int typeOfFormat = ((head[21] << 8) & 0x0000FF00) | ((head[20]) & 0x00000FF);
-                if (!weak) {
-                    if (typeOfFormat != 0x55) throw new UnsupportedAudioFileException("WAV (" + typeOfFormat + ") stream found");
-                }
-                pis.skip(22); // TODO sloppy
-            } else {
-                if (!weak) throw new UnsupportedAudioFileException("unsupported WAV stream found");
-            }
-        } else if ((head[0] == '.') && (head[1] == 's') && (head[2] == 'n') && (head[3] == 'd')) {
-            logger.log(Level.TRACE, "AU stream found");
-            if (!weak) throw new UnsupportedAudioFileException("AU stream found");
-        } else if ((head[0] == 'F') && (head[1] == 'O') && (head[2] == 'R') && (head[3] == 'M') && (head[8] == 'A') && (head[9] == 'I') && (head[10] == 'F') && (head[11] == 'F')) {
-            logger.log(Level.TRACE, "AIFF stream found");
-            if (!weak) throw new UnsupportedAudioFileException("AIFF stream found");
-        } else if (((head[0] == 'M') | (head[0] == 'm')) && ((head[1] == 'A') | (head[1] == 'a')) && ((head[2] == 'C') | (head[2] == 'c'))) {
-            logger.log(Level.TRACE, "APE stream found");
-            if (!weak) throw new UnsupportedAudioFileException("APE stream found");
-        } else if (((head[0] == 'F') | (head[0] == 'f')) && ((head[1] == 'L') | (head[1] == 'l')) && ((head[2] == 'A') | (head[2] == 'a')) && ((head[3] == 'C') | (head[3] == 'c'))) {
-            logger.log(Level.TRACE, "FLAC stream found");
-            if (!weak) throw new UnsupportedAudioFileException("FLAC stream found");
-        } else if (((head[0] == 'I') | (head[0] == 'i')) && ((head[1] == 'C') | (head[1] == 'c')) && ((head[2] == 'Y') | (head[2] == 'y'))) {
-            // Shoutcast stream ?
-            pis.unread(head);
-            // Load shoutcast meta data.
-            loadShoutcastInfo(pis, context.aff_properties);
-        } else if (((head[0] == 'O') | (head[0] == 'o')) && ((head[1] == 'G') | (head[1] == 'g')) && ((head[2] == 'G') | (head[2] == 'g'))) {
-            // Ogg stream ?
-            logger.log(Level.TRACE, "Ogg stream found");
-            if (!weak) throw new UnsupportedAudioFileException("Ogg stream found");
-        } else {
+        // Check for WAV, AU, AIFF, Ogg Vorbis, Flac, MAC and other containers by the signature table.
+        // Next check for Shoutcast (supported) streams.
+        ContainerSignature signature = ContainerSignature.of(head, r);
+        if (signature == null) {
             // No, so pushback.
-            pis.unread(head);
+            pis.unread(head, 0, r);
+        } else {
+            logger.log(Level.TRACE, signature + " stream found");
+            switch (signature) {
+            case WAV -> {
+                pis.unread(head, 0, r);
+                long dataLength = skipToRiffData(pis, tail, context);
+                if (mediaLength != AudioSystem.NOT_SPECIFIED) {
+                    dataLength = Math.min(dataLength, mediaLength - context.riffOffset);
+                }
+                context.mLength = (int) dataLength;
+                context.aff_properties.put("mp3.riff.data.offset", context.riffOffset);
+                context.aff_properties.put("mp3.riff.data.length", dataLength);
+            }
+            case ICY -> {
+                // Shoutcast stream ?
+                pis.unread(head, 0, r);
+                // Load shoutcast meta data.
+                loadShoutcastInfo(pis, context.aff_properties);
+            }
+            default -> {
+                if (!weak) throw new UnsupportedAudioFileException(signature + " stream found");
+            }
+            }
         }
 
         try {
-            context.fill(pis);
+            context.fill(pis, tail, id3v2Length(head, r));
         } catch (Exception e) {
             logger.log(Level.DEBUG, e.getMessage());
             logger.log(Level.TRACE, "not a MPEG stream: " + e.getMessage(), e);
@@ -245,7 +389,19 @@ logger.log(Level.TRACE, "InputStream : " + inputStream + " =>" + new String(head
             throw new UnsupportedAudioFileException("not a MPEG stream: wrong sampling rate");
         }
         // Look up for ID3v1 tag
-        if ((size == mediaLength) && (mediaLength != AudioSystem.NOT_SPECIFIED)) {
+        if (tail != null && mediaLength != AudioSystem.NOT_SPECIFIED) {
+            TailTags tags = TailTags.read(tail, mediaLength);
+            tags.fill(context.aff_properties);
+            if (tags.getId3v1() != null) {
+                parseID3v1Frames(tags.getId3v1(), context.aff_properties);
+            }
+            if (exact && !context.aff_properties.containsKey("mp3.vbr.frames")) {
+                long audioEnd = context.riffOffset > 0 ? context.riffOffset + context.mLength : tags.getAudioEnd();
+                context.count(tail, context.riffOffset, audioEnd);
+            }
+        } else if (!lookupTail) {
+            logger.log(Level.TRACE, "probe only, skip id3v1");
+        } else if ((size == mediaLength) && (mediaLength != AudioSystem.NOT_SPECIFIED)) {
             byte[] id3v1 = new byte[128];
             @SuppressWarnings("unused")
             long bytesSkipped = inputStream.skip(inputStream.available() - id3v1.length);
@@ -257,13 +413,11 @@ logger.log(Level.TRACE, "InputStream : " + inputStream + " =>" + new String(head
         } else {
             logger.log(Level.TRACE, "unknown size, maybe not a file: " + inputStream.available());
             if (inputStream.available() <= INITIAL_READ_LENGTH) {
-                InputStream is = new BufferedInputStream(inputStream, inputStream.available());
+                // the source keeps what is skipped for its mark, no second buffer here
                 byte[] id3v1 = new byte[128];
-                is.mark(inputStream.available());
+                inputStream.skipNBytes(Math.max(inputStream.available() - id3v1.length, 0));
                 @SuppressWarnings("unused")
-                long bytesSkipped = is.skip(inputStream.available() - id3v1.length);
-                @SuppressWarnings("unused")
-                int read = is.read(id3v1, 0, id3v1.length);
+                int read = inputStream.readNBytes(id3v1, 0, id3v1.length);
                 logger.log(Level.TRACE, (char) id3v1[0] + ", " + (char) id3v1[1] + ", " + (char) id3v1[2]);
                 if ((id3v1[0] == 'T') && (id3v1[1] == 'A') && (id3v1[2] == 'G')) {
                     parseID3v1Frames(id3v1, context.aff_properties);
@@ -272,6 +426,9 @@ logger.log(Level.TRACE, "InputStream : " + inputStream + " =>" + new String(head
                 logger.log(Level.TRACE, "larger than limit 20MB, skip id3v1");
             }
         }
+        context.aff_properties.put("mp3.probe.bytes", probe.count);
+        context.af_properties.put("mp3.probe.bytes", probe.count);
+logger.log(Level.DEBUG, "probe read: " + probe.count + " bytes");
         AudioFormat format = new MpegAudioFormat(context.encoding, context.nFrequency,
                 AudioSystem.NOT_SPECIFIED,  // SampleSizeInBits - The size of a sample
                 context.nChannels,          // Channels - The number of channels
@@ -298,16 +455,30 @@ logger.log(Level.TRACE, "InputStream : " + inputStream + " =>" + new String(head
         int bitRate;
         int nChannels;
         int nHeader;
+        int headerPos;
+        /** payload offset of the RIFF data chunk, 0 when not RIFF */
+        long riffOffset;
         int nTotalMS;
         boolean nVBR;
         AudioFormat.Encoding encoding;
         Map<String, Object> aff_properties = new HashMap<>();
         Map<String, Object> af_properties = new HashMap<>();
 
-        void fill(PushbackInputStream pis) throws Exception {
-            Bitstream m_bitstream = new Bitstream(pis);
-            aff_properties.put("mp3.header.pos", m_bitstream.header_pos());
+        /**
+         * @param tail random access to the source for the ID3v2 tag, nullable
+         * @param tagLength ID3v2 tag length declared at the start, the frame search starts after that
+         */
+        void fill(PushbackInputStream pis, TailTags.Source tail, long tagLength) throws Exception {
+            // junk before the first frame is dropped here, the bitstream sees a confirmed frame at once
+            InputStream sis = MpegSyncScanner.sync(pis, tagLength, SYNC_BUDGET, MpegSyncScanner.DEFAULT_CHAIN);
+            TailInputStream tis = new TailInputStream(sis);
+            Bitstream m_bitstream = new Bitstream(tis);
+            headerPos = m_bitstream.header_pos();
+            aff_properties.put("mp3.header.pos", headerPos);
             Header m_header = m_bitstream.readFrame();
+            if (m_header == null) {
+                throw new UnsupportedAudioFileException("no frame within " + SYNC_BUDGET + " bytes");
+            }
             // nVersion = 0 => MPEG2-LSF (Including MPEG2.5), nVersion = 1 => MPEG1
             nVersion = m_header.version();
             if (nVersion == 2) aff_properties.put("mp3.version.mpeg", Float.toString(2.5f));
@@ -347,6 +518,26 @@ logger.log(Level.TRACE, "InputStream : " + inputStream + " =>" + new String(head
                 nTotalMS = Math.round(m_header.totalMs(mLength));
                 aff_properties.put("duration", nTotalMS * 1000L);
             }
+            // Xing/Info, VBRI and LAME headers for exact length, the synced stream starts the first frame just after the tag
+            byte[] frame = tis.frameAt(tagLength, m_header.getSyncHeader(), m_header.calculateFrameSize() + 4);
+            MpegVbrHeader vbrHeader = frame != null ? MpegVbrHeader.parse(frame, 0, frame.length) : null;
+            if (vbrHeader != null) {
+logger.log(Level.DEBUG, vbrHeader);
+                vbrHeader.fill(aff_properties);
+                vbrHeader.fill(af_properties);
+                if (vbrHeader.getFrames() > 0) {
+                    nTotalFrames = vbrHeader.getFrames();
+                    aff_properties.put("mp3.length.frames", nTotalFrames);
+                    long samples = (long) nTotalFrames * MpegFrameHeader.samplesPerFrame(nHeader);
+                    long duration = samples * 1_000_000L / nFrequency;
+                    nTotalMS = (int) (duration / 1000);
+                    aff_properties.put("duration", duration);
+                    if (vbrHeader.getBytes() > 0 && nVBR) {
+                        int average = (int) (vbrHeader.getBytes() * 8L * 1_000_000L / duration);
+                        af_properties.put("bitrate", average);
+                    }
+                }
+            }
             aff_properties.put("mp3.copyright", m_header.copyright());
             aff_properties.put("mp3.original", m_header.original());
             aff_properties.put("mp3.crc", m_header.checksums());
@@ -354,11 +545,288 @@ logger.log(Level.TRACE, "InputStream : " + inputStream + " =>" + new String(head
             InputStream id3v2 = m_bitstream.getRawID3v2();
 //logger.log(Level.TRACE, "id3v2: " + id3v2);
             if (id3v2 != null) {
-                aff_properties.put("mp3.id3tag.v2", id3v2);
-                parseID3v2Frames(id3v2, aff_properties);
+                // the tag is at the start of the payload
+                int tagSize = m_bitstream.header_pos();
+                if (tail != null && tagSize > 10) {
+                    // read on demand, the raw tag including pictures is not held
+                    aff_properties.put("mp3.id3tag.v2", new TagInputStream(tail, riffOffset, tagSize));
+                } else {
+                    aff_properties.put("mp3.id3tag.v2", id3v2);
+                }
+                Id3v2Tag tag = null;
+                if (tail != null && tail.isView() && tagSize > 10) {
+                    // a view of the mapped file, frame bodies are not copied
+                    tag = Id3v2Tag.parse(tail.read(riffOffset, tagSize));
+                }
+                if (tag != null) {
+                    aff_properties.put("mp3.id3tag.v2.tag", tag);
+                    parseID3v2Frames(tag, aff_properties);
+                } else {
+                    // from the bytes the bitstream has read, no catalog is kept
+                    parseID3v2Frames(id3v2, aff_properties);
+                }
             }
 logger.log(Level.TRACE, m_header.toString());
         }
+
+        /**
+         * Replaces the estimated length by an exact one, all the frame headers are walked.
+         *
+         * @param source thread safe positional reads
+         * @param audioStart start of the audio stream, the RIFF data chunk payload or 0
+         * @param audioEnd end of the audio data, tail tags excluded
+         */
+        void count(TailTags.Source source, long audioStart, long audioEnd) throws IOException {
+            long frames = MpegFrameCounter.count(source, audioStart + headerPos, audioEnd, nHeader);
+            nTotalFrames = (int) frames;
+            aff_properties.put("mp3.length.frames", nTotalFrames);
+            long duration = frames * MpegFrameHeader.samplesPerFrame(nHeader) * 1_000_000L / nFrequency;
+            nTotalMS = (int) (duration / 1000);
+            aff_properties.put("duration", duration);
+        }
+    }
+
+    /**
+     * Counts bytes taken from the source, those are what the source has to keep for reset.
+     */
+    private static class ProbeInputStream extends FilterInputStream {
+
+        long count;
+
+        ProbeInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                count++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long k = super.skip(n);
+            count += k;
+            return k;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * The raw ID3v2 tag read from the source block by block, for the legacy {@code mp3.id3tag.v2} property.
+     */
+    private static class TagInputStream extends InputStream {
+
+        private static final int BLOCK = 8192;
+
+        private final TailTags.Source source;
+        private final long start;
+        private final long length;
+        private long position;
+        private long mark;
+        private ByteBuffer block = ByteBuffer.allocate(0);
+        private long blockStart;
+
+        TagInputStream(TailTags.Source source, long start, long length) {
+            this.source = source;
+            this.start = start;
+            this.length = length;
+        }
+
+        /** @return false at the end */
+        private boolean fill() throws IOException {
+            if (position >= length) {
+                return false;
+            }
+            if (position < blockStart || position >= blockStart + block.limit()) {
+                blockStart = position;
+                block = source.read(start + position, (int) Math.min(BLOCK, length - position));
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return block.get((int) (position++ - blockStart)) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = (int) Math.min(len, blockStart + block.limit() - position);
+            block.get((int) (position - blockStart), b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long k = Math.max(0, Math.min(n, length - position));
+            position += k;
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(length - position, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+    }
+
+    /**
+     * Ends at the length, e.g. the end of a RIFF data chunk.
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int c = super.read();
+            if (c >= 0) {
+                remaining--;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long k = super.skip(Math.min(n, Math.max(remaining, 0)));
+            remaining -= k;
+            return k;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), Math.max(remaining, 0));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * Keeps the last bytes read, to pick up the raw first frame the bitstream read.
+     */
+    private static class TailInputStream extends FilterInputStream {
+
+        /** enough for the largest frame and the bitstream look ahead */
+        private final byte[] ring = new byte[4096];
+        private long count;
+
+        TailInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                ring[(int) (count++ % ring.length)] = (byte) c;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            for (int i = 0; i < n; i++) {
+                ring[(int) (count++ % ring.length)] = b[off + i];
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return Math.max(read(new byte[(int) Math.min(n, ring.length)]), 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Gets the whole frame at the position. following frames may have the same header word,
+         * so the frame is taken by the position, not searched.
+         *
+         * @param position from the start of this stream
+         * @param header sync header word of the frame
+         * @param size whole frame size including the header
+         * @return null when the bytes are not kept or the header does not match
+         */
+        byte[] frameAt(long position, int header, int size) {
+            if (size <= 4 || position < count - ring.length || position + size > count) {
+                return null;
+            }
+            byte[] frame = new byte[size];
+            for (int i = 0; i < size; i++) {
+                frame[i] = ring[(int) ((position + i) % ring.length)];
+            }
+            int word = (frame[0] & 0xff) << 24 | (frame[1] & 0xff) << 16 | (frame[2] & 0xff) << 8 | (frame[3] & 0xff);
+            return word == header ? frame : null;
+        }
     }
 
     /**
@@ -367,13 +835,59 @@ logger.log(Level.TRACE, m_header.toString());
     @Override
     public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
         logger.log(Level.TRACE, "getAudioInputStream(File file)");
-        InputStream inputStream = Files.newInputStream(file.toPath());
-        try {
-            return getAudioInputStream(inputStream);
-        } catch (UnsupportedAudioFileException | IOException e) {
-            inputStream.close();
-            throw e;
+        AudioInputStream audioInputStream;
+        AudioFileFormat audioFileFormat = null;
+        MappedInputStream mis = map(file);
+        if (mis != null) {
+            // probe and decode straight from the mapped region, no mark/reset buffering
+            audioFileFormat = getAudioFileFormat(mis, mis.length(), TailTags.Source.of(mis.buffer()), true);
+            mis.reset();
+            // frames of the encoded stream are not sample frames, the exact count is in the file format
+            audioInputStream = new AudioInputStream(payload(mis, audioFileFormat), audioFileFormat.getFormat(), AudioSystem.NOT_SPECIFIED);
+        } else {
+            InputStream inputStream = Files.newInputStream(file.toPath());
+            try {
+                audioInputStream = getAudioInputStream(inputStream);
+            } catch (UnsupportedAudioFileException | IOException e) {
+                inputStream.close();
+                throw e;
+            }
+        }
+        if (indexing) {
+            try {
+                if (audioFileFormat == null) {
+                    audioFileFormat = getAudioFileFormat(file);
+                }
+                audioInputStream = withIndex(audioInputStream, index(file.toPath(), audioFileFormat));
+            } catch (UnsupportedAudioFileException | IOException e) {
+                logger.log(Level.DEBUG, "cannot index: " + file + ", " + e.getMessage());
+            }
         }
+        return audioInputStream;
+    }
+
+    /**
+     * Gets the index over the MPEG payload, offsets are from the payload same as the stream given to the decoder.
+     * for RIFF/WAVE, only the data chunk is scanned.
+     */
+    private MpegFrameIndex index(Path path, AudioFileFormat audioFileFormat) throws IOException {
+        if (audioFileFormat.getProperty("mp3.riff.data.offset") instanceof Long offset) {
+            long length = (Long) audioFileFormat.getProperty("mp3.riff.data.length");
+            return MpegFrameIndex.of(path, offset, offset + length, sidecar).relativeTo(offset);
+        }
+        return MpegFrameIndex.of(path, sidecar);
+    }
+
+    /**
+     * Attaches the frame index as the "mp3.index" format property.
+     */
+    private static AudioInputStream withIndex(AudioInputStream audioInputStream, MpegFrameIndex index) {
+        AudioFormat format = audioInputStream.getFormat();
+        Map<String, Object> properties = new HashMap<>(format.properties());
+        properties.put("mp3.index", index);
+        format = new MpegAudioFormat(format.getEncoding(), format.getSampleRate(), format.getSampleSizeInBits(),
+                format.getChannels(), format.getFrameSize(), format.getFrameRate(), format.isBigEndian(), properties);
+        return new AudioInputStream(audioInputStream, format, AudioSystem.NOT_SPECIFIED);
     }
 
     /**
@@ -434,11 +948,144 @@ logger.log(Level.TRACE, m_header.toString());
 logger.log(Level.TRACE, "MpegAudioFileReader.getAudioInputStream(InputStream inputStream)");
 logger.log(Level.TRACE, "inputStream: " + inputStream.getClass().getName() + ", mark: " + inputStream.markSupported());
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream);
-logger.log(Level.TRACE, "available/limit: " + inputStream.available() + ", " + getMarkLimit());
-        setMarkLimit(Math.min(inputStream.available(), getMarkLimit()));
         return super.getAudioInputStream(inputStream);
     }
 
+    /**
+     * Probes with a mark limit sized for this stream instead of {@link #INITIAL_READ_LENGTH},
+     * the ID3v1 tag is not looked up because it is not a part of the audio format.
+     */
+    @Override
+    protected AudioInputStream getAudioInputStream(InputStream inputStream, long lFileLengthInBytes) throws UnsupportedAudioFileException, IOException {
+        if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream);
+        int limit = probeLimit(inputStream);
+logger.log(Level.TRACE, "available/limit: " + inputStream.available() + ", " + limit);
+        inputStream.mark(limit);
+        AudioFileFormat audioFileFormat;
+        try {
+            audioFileFormat = getAudioFileFormat(inputStream, lFileLengthInBytes, null, false);
+        } catch (UnsupportedAudioFileException | IOException e) {
+            try {
+                inputStream.reset();
+            } catch (IOException f) {
+                logger.log(Level.DEBUG, "cannot reset: " + f.getMessage());
+            }
+            throw e;
+        }
+        inputStream.reset();
+        // the exact count of MPEG frames is not a length of the encoded stream
+        return new AudioInputStream(payload(inputStream, audioFileFormat), audioFileFormat.getFormat(), AudioSystem.NOT_SPECIFIED);
+    }
+
+    /**
+     * Positions the stream at the MPEG payload of a RIFF/WAVE stream, chunks after that are cut.
+     *
+     * @return the stream as is when not RIFF
+     */
+    private static InputStream payload(InputStream inputStream, AudioFileFormat audioFileFormat) throws IOException {
+        if (audioFileFormat.getProperty("mp3.riff.data.offset") instanceof Long offset) {
+            inputStream.skipNBytes(offset);
+            return new BoundedInputStream(inputStream, (Long) audioFileFormat.getProperty("mp3.riff.data.length"));
+        }
+        return inputStream;
+    }
+
+    /**
+     * Grows the limit step by step, the 10 bytes ID3v2 header, the declared tag size, then a few frames.
+     *
+     * @param inputStream mark supported
+     * @return bytes to be read by probing, not more than {@link #MARK_LIMIT}
+     */
+    private static int probeLimit(InputStream inputStream) throws IOException {
+        inputStream.mark(10);
+        byte[] header = inputStream.readNBytes(10);
+        inputStream.reset();
+        long limit = PROBE_LENGTH + id3v2Length(header, header.length);
+        return (int) Math.min(limit, MARK_LIMIT);
+    }
+
+    /**
+     * @param header the first bytes of a stream
+     * @return the whole ID3v2 tag length declared in the header, 0 when no tag
+     */
+    private static long id3v2Length(byte[] header, int length) {
+        if (length >= 10 && header[0] == 'I' && header[1] == 'D' && header[2] == '3') {
+            int tagSize = (header[6] & 0x7f) << 21 | (header[7] & 0x7f) << 14 | (header[8] & 0x7f) << 7 | (header[9] & 0x7f);
+            boolean footer = (header[5] & 0x10) != 0;
+            return 10 + tagSize + (footer ? 10 : 0);
+        }
+        return 0;
+    }
+
+    /**
+     * Walks RIFF chunks to the payload of the data chunk, the fmt chunk must have format tag 0x55 (MPEG layer III).
+     * chunks are read by the positional source when given, otherwise the stream is read through
+     * within {@link #SYNC_BUDGET}.
+     *
+     * @param pis at the RIFF header, at the payload of the data chunk after this
+     * @param tail positional reader relative to the start of the stream, nullable
+     * @param context {@link MpegContext#riffOffset} is set
+     * @return data chunk size
+     */
+    private long skipToRiffData(InputStream pis, TailTags.Source tail, MpegContext context) throws IOException, UnsupportedAudioFileException {
+        long offset = 12; // RIFF size WAVE
+        if (tail == null) {
+            pis.skipNBytes(offset);
+        }
+        int formatTag = -1;
+        while (true) {
+            byte[] header = riffBytes(pis, tail, offset, 8);
+            if (header.length < 8) {
+                throw new UnsupportedAudioFileException("no data chunk in WAV stream");
+            }
+            offset += header.length;
+            long size = (header[4] & 0xffL) | (header[5] & 0xffL) << 8 | (header[6] & 0xffL) << 16 | (header[7] & 0xffL) << 24;
+            if (header[0] == 'd' && header[1] == 'a' && header[2] == 't' && header[3] == 'a') {
+                if (formatTag == -1 && !weak) throw new UnsupportedAudioFileException("unsupported WAV stream found");
+logger.log(Level.TRACE, "RIFF data chunk: " + offset + ", " + size);
+                if (tail != null) {
+                    pis.skipNBytes(offset);
+                }
+                context.riffOffset = offset;
+                return size;
+            }
+            // a sequential probe keeps what it reads for reset, the data chunk must be near
+            if (tail == null && offset + size > SYNC_BUDGET) {
+                throw new UnsupportedAudioFileException("no data chunk within " + SYNC_BUDGET + " bytes of WAV stream");
+            }
+            long skip = size + (size & 1);
+            if (header[0] == 'f' && header[1] == 'm' && header[2] == 't' && header[3] == ' ' && size >= 2) {
+                byte[] format = riffBytes(pis, tail, offset, 2);
+                skip -= format.length;
+                formatTag = format.length == 2 ? (format[0] & 0xff) | (format[1] & 0xff) << 8 : 0;
+                if (!weak) {
+                    if (formatTag != 0x55) throw new UnsupportedAudioFileException("WAV (" + formatTag + ") stream found");
+                }
+            }
+            if (tail == null) {
+                pis.skipNBytes(skip);
+            }
+            offset += size + (size & 1);
+        }
+    }
+
+    /**
+     * @param tail positional reader, the stream is read when null
+     * @return bytes at the offset, fewer at the end
+     */
+    private static byte[] riffBytes(InputStream pis, TailTags.Source tail, long offset, int length) throws IOException {
+        if (tail == null) {
+            return pis.readNBytes(length);
+        }
+        try {
+            byte[] bytes = new byte[length];
+            tail.read(offset, length).get(bytes);
+            return bytes;
+        } catch (EOFException e) {
+            return new byte[0];
+        }
+    }
+
     /**
      * Parser ID3v1 frames
      *
@@ -505,102 +1152,100 @@ logger.log(Level.TRACE, "Cannot chopSubString " + e.getMessage());
     protected void parseID3v2Frames(InputStream frames, Map<String, Object> props) {
         logger.log(Level.TRACE, "Parsing ID3v2");
         byte[] bframes = null;
-        int size = -1;
         try {
-            size = frames.available();
-            bframes = new byte[size];
-            frames.mark(size);
-            int r = frames.read(bframes);
-            assert r == bframes.length : "read ID3v2 tags";
+            frames.mark(frames.available());
+            bframes = frames.readAllBytes();
             frames.reset();
         } catch (IOException e) {
             logger.log(Level.TRACE, "Cannot parse ID3v2 :" + e.getMessage());
         }
-        if (!"ID3".equals(new String(bframes, 0, 3))) {
+        if (bframes == null || bframes.length < 10 || !"ID3".equals(new String(bframes, 0, 3))) {
             logger.log(Level.TRACE, "No ID3v2 header found!");
             return;
         }
         int v2version = bframes[3] & 0xff;
         props.put("mp3.id3tag.v2.version", String.valueOf(v2version));
-        if (v2version < 2 || v2version > 4) {
+        Id3v2Tag tag = Id3v2Tag.parse(ByteBuffer.wrap(bframes));
+        if (tag == null) {
             logger.log(Level.TRACE, "Unsupported ID3v2 version " + v2version + "!");
             return;
         }
+        parseID3v2Frames(tag, props);
+    }
+
+    private static final int COMM = Id3v2Tag.code("COMM");
+    private static final int COM = Id3v2Tag.code("COM");
+
+    /** frame ids of text properties, sorted */
+    private static final int[] ID3V2_CODES;
+
+    /** property keys for {@link #ID3V2_CODES} */
+    private static final String[] ID3V2_KEYS;
+
+    static {
+        String[][] table = {
+                {"TALB", "album"}, {"TIT2", "title"}, {"TYER", "date"}, {"TDRC", "date"}, // ID3v2.4 date fix.
+                {"TPE1", "author"}, {"TCOP", "copyright"}, {"COMM", "comment"}, {"TCON", "mp3.id3tag.genre"},
+                {"TRCK", "mp3.id3tag.track"}, {"TPOS", "mp3.id3tag.disc"}, {"TCOM", "mp3.id3tag.composer"},
+                {"TIT1", "mp3.id3tag.grouping"}, {"TENC", "mp3.id3tag.encoded"}, {"TPUB", "mp3.id3tag.publisher"},
+                {"TPE2", "mp3.id3tag.orchestra"}, {"TLEN", "mp3.id3tag.length"},
+                // ID3v2.2
+                {"TAL", "album"}, {"TT2", "title"}, {"TYE", "date"}, {"TP1", "author"}, {"TCR", "copyright"},
+                {"COM", "comment"}, {"TCO", "mp3.id3tag.genre"}, {"TRK", "mp3.id3tag.track"}, {"TPA", "mp3.id3tag.disc"},
+                {"TCM", "mp3.id3tag.composer"}, {"TT1", "mp3.id3tag.grouping"}, {"TEN", "mp3.id3tag.encoded"},
+                {"TPB", "mp3.id3tag.publisher"}, {"TP2", "mp3.id3tag.orchestra"}, {"TLE", "mp3.id3tag.length"},
+        };
+        Arrays.sort(table, Comparator.comparingInt(e -> Id3v2Tag.code(e[0])));
+        ID3V2_CODES = new int[table.length];
+        ID3V2_KEYS = new String[table.length];
+        for (int i = 0; i < table.length; i++) {
+            ID3V2_CODES[i] = Id3v2Tag.code(table[i][0]);
+            ID3V2_KEYS[i] = table[i][1];
+        }
+    }
+
+    /**
+     * Parse ID3v2 frames from the catalog, only frames mapped to properties are decoded.
+     *
+     * @param tag indexed tag
+     * @param props in/out
+     */
+    protected void parseID3v2Frames(Id3v2Tag tag, Map<String, Object> props) {
+        int v2version = tag.getVersion();
+        props.put("mp3.id3tag.v2.version", String.valueOf(v2version));
         try {
-            logger.log(Level.TRACE, "ID3v2 frame dump(" + bframes.length + ")='" + new String(bframes) + "'");
             // ID3 tags : http://www.unixgods.org/~tilo/ID3/docs/ID3_comparison.html
-            String value;
-            for (int i = 10; i < bframes.length && bframes[i] > 0; i += size) {
-                if (v2version == 3 || v2version == 4) {
-                    // ID3v2.3 & ID3v2.4
-                    String code = new String(bframes, i, 4);
-logger.log(Level.DEBUG, "code: " + code);
-                    size = ((bframes[i + 4] << 24) & 0xFF000000 | (bframes[i + 5] << 16) & 0x00FF0000 | (bframes[i + 6] << 8) & 0x0000FF00 | (bframes[i + 7]) & 0x000000FF);
-                    i += 10;
-                    if ((code.equals("TALB")) || (code.equals("TIT2")) || (code.equals("TYER")) ||
-                            (code.equals("TPE1")) || (code.equals("TCOP")) || (code.equals("COMM")) ||
-                            (code.equals("TCON")) || (code.equals("TRCK")) || (code.equals("TPOS")) ||
-                            (code.equals("TDRC")) || (code.equals("TCOM")) || (code.equals("TIT1")) ||
-                            (code.equals("TENC")) || (code.equals("TPUB")) || (code.equals("TPE2")) ||
-                            (code.equals("TLEN"))) {
-                        if (code.equals("COMM"))
-                            value = parseText(bframes, i, size, getSkipForComment(bframes, i, size, 1 + 3));
-                        else value = parseText(bframes, i, size, 1);
-                        if ((value != null) && (!value.isEmpty())) {
-                            switch (code) {
-                            case "TALB" -> props.put("album", value);
-                            case "TIT2" -> props.put("title", value);
-                            case "TYER" -> props.put("date", value);
-
-                            // ID3v2.4 date fix.
-                            case "TDRC" -> props.put("date", value);
-                            case "TPE1" -> props.put("author", value);
-                            case "TCOP" -> props.put("copyright", value);
-                            case "COMM" -> props.put("comment", value);
-                            case "TCON" -> props.put("mp3.id3tag.genre", value);
-                            case "TRCK" -> props.put("mp3.id3tag.track", value);
-                            case "TPOS" -> props.put("mp3.id3tag.disc", value);
-                            case "TCOM" -> props.put("mp3.id3tag.composer", value);
-                            case "TIT1" -> props.put("mp3.id3tag.grouping", value);
-                            case "TENC" -> props.put("mp3.id3tag.encoded", value);
-                            case "TPUB" -> props.put("mp3.id3tag.publisher", value);
-                            case "TPE2" -> props.put("mp3.id3tag.orchestra", value);
-                            case "TLEN" -> props.put("mp3.id3tag.length", value);
-                            }
-                        }
-                    }
+            for (int i = 0; i < tag.getFrameCount(); i++) {
+                int code = tag.getCode(i);
+                int k = Arrays.binarySearch(ID3V2_CODES, code);
+                if (k < 0) {
+                    continue;
+                }
+                ByteBuffer body = tag.getBody(i);
+                if (body == null || !body.hasRemaining()) {
+                    continue;
+                }
+                // heap tags are decoded in place, mapped ones are copied per text frame
+                byte[] bframes;
+                int offset;
+                if (body.hasArray()) {
+                    bframes = body.array();
+                    offset = body.arrayOffset() + body.position();
                 } else {
-                    // ID3v2.2
-                    String scode = new String(bframes, i, 3);
-                    size = (0x00000000) + (bframes[i + 3] << 16) + (bframes[i + 4] << 8) + (bframes[i + 5]);
-                    i += 6;
-                    if ((scode.equals("TAL")) || (scode.equals("TT2")) || (scode.equals("TP1")) ||
-                            (scode.equals("TYE")) || (scode.equals("TRK")) || (scode.equals("TPA")) ||
-                            (scode.equals("TCR")) || (scode.equals("TCO")) || (scode.equals("TCM")) ||
-                            (scode.equals("COM")) || (scode.equals("TT1")) || (scode.equals("TEN")) ||
-                            (scode.equals("TPB")) || (scode.equals("TP2")) || (scode.equals("TLE"))) {
-                        if (scode.equals("COM")) value = parseText(bframes, i, size, 5);
-                        else value = parseText(bframes, i, size, 1);
-                        if ((value != null) && (!value.isEmpty())) {
-                            switch (scode) {
-                            case "TAL" -> props.put("album", value);
-                            case "TT2" -> props.put("title", value);
-                            case "TYE" -> props.put("date", value);
-                            case "TP1" -> props.put("author", value);
-                            case "TCR" -> props.put("copyright", value);
-                            case "COM" -> props.put("comment", value);
-                            case "TCO" -> props.put("mp3.id3tag.genre", value);
-                            case "TRK" -> props.put("mp3.id3tag.track", value);
-                            case "TPA" -> props.put("mp3.id3tag.disc", value);
-                            case "TCM" -> props.put("mp3.id3tag.composer", value);
-                            case "TT1" -> props.put("mp3.id3tag.grouping", value);
-                            case "TEN" -> props.put("mp3.id3tag.encoded", value);
-                            case "TPB" -> props.put("mp3.id3tag.publisher", value);
-                            case "TP2" -> props.put("mp3.id3tag.orchestra", value);
-                            case "TLE" -> props.put("mp3.id3tag.length", value);
-                            }
-                        }
-                    }
+                    bframes = new byte[body.remaining()];
+                    body.get(body.position(), bframes);
+                    offset = 0;
+                }
+                int size = body.remaining();
+                boolean comment = code == COMM || code == COM;
+                String value;
+                if (v2version == 2) {
+                    value = parseText(bframes, offset, size, comment ? 5 : 1);
+                } else {
+                    value = parseText(bframes, offset, size, comment ? getSkipForComment(bframes, offset, size, 1 + 3) : 1);
+                }
+                if ((value != null) && (!value.isEmpty())) {
+                    props.put(ID3V2_KEYS[k], value);
                 }
             }
         } catch (RuntimeException e) {
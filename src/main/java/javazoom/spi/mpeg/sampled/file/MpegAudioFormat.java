@@ -59,6 +59,13 @@ public class MpegAudioFormat extends TAudioFormat {
      * <li><b>bitrate</b> [Integer], bitrate in bits per seconds, average bitrate for VBR enabled stream.
      * <li><b>vbr</b> [Boolean], VBR flag.
      * </ul>
+     * <br>MP3 parameters.
+     * <ul>
+     * <li><b>mp3.index</b> [MpegFrameIndex], frame index for seeking, only when {@code mp3spi.index} is enabled.
+     * <li><b>mp3.vbr.header</b>, <b>mp3.vbr.frames</b>, <b>mp3.vbr.bytes</b>, <b>mp3.vbr.toc</b>,
+     * same as {@link MpegAudioFileFormat#properties()}, for TOC seeking.
+     * <li><b>mp3.probe.bytes</b> [Long], bytes read from the source while probing.
+     * </ul>
      */
     @Override
     public Map<String, Object> properties() {
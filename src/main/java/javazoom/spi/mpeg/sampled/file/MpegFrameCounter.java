@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javazoom.spi.mpeg.sampled.file.tag.TailTags;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Counts MPEG audio frames exactly by walking all the frame headers.
+ * <p>
+ * the audio data is split into regions, a verified sync point is found in each region
+ * and regions are walked in parallel by fork/join. a region whose sync point
+ * is not where the previous region ended is walked again from there,
+ * so the result is the same as a sequential walk.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class MpegFrameCounter {
+
+    private static final Logger logger = getLogger(MpegFrameCounter.class.getName());
+
+    /** bytes read at once */
+    private static final int WINDOW = 1024 * 1024;
+
+    /** smallest region worth a task */
+    private static final long MIN_REGION = 8 * 1024 * 1024;
+
+    /** the largest frame (2881 bytes, MPEG 2.5 layer II) and the chain to verify it */
+    private static final int SLACK = 2881 * (MpegSyncScanner.DEFAULT_CHAIN + 1) + 4;
+
+    private MpegFrameCounter() {
+    }
+
+    /** walk result of a region */
+    private static final class Region {
+        /** first frame, -1 when not found */
+        final long first;
+        /** just after the last frame */
+        final long end;
+        final long frames;
+
+        Region(long first, long end, long frames) {
+            this.first = first;
+            this.end = end;
+            this.frames = frames;
+        }
+    }
+
+    /**
+     * @param source positional reads, must be thread safe
+     * @param start the first frame, junk after there is skipped
+     * @param end end of the audio data, tail tags excluded
+     * @param header the first frame header, other frames must be compatible with this
+     * @return number of frames
+     */
+    public static long count(TailTags.Source source, long start, long end, int header) throws IOException {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int n = (int) Math.max(1, Math.min((end - start) / MIN_REGION, parallelism * 4L));
+        long[] bounds = new long[n + 1];
+        for (int i = 0; i <= n; i++) {
+            bounds[i] = start + (end - start) * i / n;
+        }
+        Region[] regions;
+        try {
+            regions = ForkJoinPool.commonPool().invoke(new Walk(source, bounds, 0, n, end, header));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // stitch, a region synced at a different point is walked again from where the previous one ended
+        long frames = regions[0].frames;
+        long expected = regions[0].end;
+        for (int i = 1; i < n; i++) {
+            Region region = regions[i];
+            if (expected >= bounds[i + 1]) {
+                continue; // the previous region walked over this one
+            }
+            if (region.first != expected) {
+logger.log(Level.DEBUG, "region " + i + ": synced at " + region.first + ", expected " + expected);
+                region = walk(source, expected, bounds[i + 1], end, header, false);
+            }
+            frames += region.frames;
+            expected = region.end;
+        }
+logger.log(Level.DEBUG, "frames: " + frames + ", regions: " + n);
+        return frames;
+    }
+
+    /** walks regions [from, to) */
+    private static final class Walk extends RecursiveTask<Region[]> {
+
+        final TailTags.Source source;
+        final long[] bounds;
+        final int from;
+        final int to;
+        final long end;
+        final int header;
+
+        Walk(TailTags.Source source, long[] bounds, int from, int to, long end, int header) {
+            this.source = source;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.end = end;
+            this.header = header;
+        }
+
+        @Override
+        protected Region[] compute() {
+            if (to - from == 1) {
+                try {
+                    return new Region[] {walk(source, bounds[from], bounds[to], end, header, from != 0)};
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            Walk left = new Walk(source, bounds, from, middle, end, header);
+            Walk right = new Walk(source, bounds, middle, to, end, header);
+            left.fork();
+            Region[] r = right.compute();
+            Region[] l = left.join();
+            Region[] regions = new Region[to - from];
+            System.arraycopy(l, 0, regions, 0, l.length);
+            System.arraycopy(r, 0, regions, l.length, r.length);
+            return regions;
+        }
+    }
+
+    /**
+     * Walks frames those start in [position, limit).
+     *
+     * @param sync true to find a verified sync point first, false when the position is a frame
+     */
+    private static Region walk(TailTags.Source source, long position, long limit, long end, int header, boolean sync) throws IOException {
+        Window window = new Window(source, end);
+        long pos = sync ? window.find(position, limit, header) : position;
+        if (pos < 0) {
+            return new Region(-1, limit, 0);
+        }
+        long first = pos;
+        long frames = 0;
+        while (pos < limit && pos + 4 <= end) {
+            int h = window.getInt(pos);
+            if (!MpegFrameHeader.isCompatible(header, h)) {
+                long next = window.find(pos + 1, end, header);
+                if (next < 0) {
+                    pos = end;
+                    break;
+                }
+logger.log(Level.TRACE, "resync: " + pos + " -> " + next);
+                pos = next;
+                continue;
+            }
+            int size = MpegFrameHeader.frameSize(h);
+            if (pos + size > end) {
+                pos = end;
+                break;
+            }
+            frames++;
+            pos += size;
+        }
+        return new Region(first, pos, frames);
+    }
+
+    /** a window on the source */
+    private static final class Window {
+
+        final TailTags.Source source;
+        final long length;
+        ByteBuffer buffer;
+        long start;
+
+        Window(TailTags.Source source, long length) {
+            this.source = source;
+            this.length = length;
+        }
+
+        int getInt(long pos) throws IOException {
+            ensure(pos, 4);
+            return buffer.getInt((int) (pos - start));
+        }
+
+        /** @return a verified header compatible with the first one in [pos, limit), -1 when not found */
+        long find(long pos, long limit, int header) throws IOException {
+            while (pos < limit && pos + 4 <= length) {
+                ensure(pos, (int) Math.min(SLACK, length - pos));
+                int p = (int) (pos - start);
+                int last = (int) Math.min(buffer.limit(), limit - start + 3);
+                ByteBuffer view = buffer.duplicate().limit(last);
+                int q = MpegSyncScanner.next(view, p);
+                if (q < 0) {
+                    if (start + last >= Math.min(limit + 3, length)) {
+                        return -1;
+                    }
+                    pos = start + Math.max(last - 3, p + 1);
+                    continue;
+                }
+                long candidate = start + q;
+                ensure(candidate, (int) Math.min(SLACK, length - candidate));
+                q = (int) (candidate - start);
+                if (MpegFrameHeader.isCompatible(header, buffer.getInt(q)) &&
+                        MpegSyncScanner.chain(buffer, q, MpegSyncScanner.DEFAULT_CHAIN) >= 0) {
+                    return candidate;
+                }
+                pos = candidate + 1;
+            }
+            return -1;
+        }
+
+        /** makes [pos, pos + n) available */
+        private void ensure(long pos, int n) throws IOException {
+            if (buffer != null && pos >= start && pos + n <= start + buffer.limit()) {
+                return;
+            }
+            int size = (int) Math.min(WINDOW, length - pos);
+            buffer = source.read(pos, size);
+            start = pos;
+        }
+    }
+}
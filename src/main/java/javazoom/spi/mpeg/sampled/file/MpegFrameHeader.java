@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+/**
+ * Header-only MPEG audio frame header arithmetic.
+ * <p>
+ * works on the raw 32 bit header word, so frames can be walked
+ * without {@link javazoom.jl.decoder.Bitstream} and without decoding.
+ * free format bitrate (index 0) is treated as invalid.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class MpegFrameHeader {
+
+    private MpegFrameHeader() {
+    }
+
+    /** [version: 0 = MPEG1, 1 = MPEG2/2.5][layer - 1][bitrate index] in kbps */
+    private static final int[][][] BITRATES = {
+            {
+                    {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, -1},
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, -1},
+                    {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, -1},
+            },
+            {
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1},
+            },
+    };
+
+    /** [version bits][sampling frequency index] */
+    private static final int[][] FREQUENCIES = {
+            {11025, 12000, 8000}, // MPEG2.5
+            {0, 0, 0}, // reserved
+            {22050, 24000, 16000}, // MPEG2
+            {44100, 48000, 32000}, // MPEG1
+    };
+
+    /** bits 21-31 */
+    private static final int SYNC_MASK = 0xffe0_0000;
+
+    /**
+     * Bits those must not change between frames of one stream,
+     * sync, version, layer and sampling frequency.
+     */
+    public static final int CONSTANT_MASK = 0xfffe_0c00;
+
+    /** @return true if the word passes all the header sanity checks */
+    public static boolean isValid(int header) {
+        return (header & SYNC_MASK) == SYNC_MASK &&
+                ((header >>> 19) & 3) != 1 && // version reserved
+                ((header >>> 17) & 3) != 0 && // layer reserved
+                ((header >>> 12) & 0xf) != 0 && // free format
+                ((header >>> 12) & 0xf) != 0xf && // bad bitrate
+                ((header >>> 10) & 3) != 3 && // sampling frequency reserved
+                (header & 3) != 2; // emphasis reserved
+    }
+
+    /** @return true if {@code next} may follow {@code first} in the same stream */
+    public static boolean isCompatible(int first, int next) {
+        return isValid(next) && (first & CONSTANT_MASK) == (next & CONSTANT_MASK);
+    }
+
+    /** @return raw version bits, 0: MPEG2.5, 2: MPEG2, 3: MPEG1 */
+    public static int versionBits(int header) {
+        return (header >>> 19) & 3;
+    }
+
+    /** @return 1, 2 or 3 */
+    public static int layer(int header) {
+        return 4 - ((header >>> 17) & 3);
+    }
+
+    /** @return true when a 16 bit CRC follows the header */
+    public static boolean hasCrc(int header) {
+        return ((header >>> 16) & 1) == 0;
+    }
+
+    /** @return 3 for single channel */
+    public static int mode(int header) {
+        return (header >>> 6) & 3;
+    }
+
+    /** @return 1 or 2 */
+    public static int channels(int header) {
+        return mode(header) == 3 ? 1 : 2;
+    }
+
+    /** @return sampling frequency in Hz */
+    public static int frequency(int header) {
+        return FREQUENCIES[versionBits(header)][(header >>> 10) & 3];
+    }
+
+    /** @return bitrate in bps */
+    public static int bitrate(int header) {
+        int v = versionBits(header) == 3 ? 0 : 1;
+        return BITRATES[v][layer(header) - 1][(header >>> 12) & 0xf] * 1000;
+    }
+
+    /** @return PCM samples per channel in one frame */
+    public static int samplesPerFrame(int header) {
+        return switch (layer(header)) {
+            case 1 -> 384;
+            case 2 -> 1152;
+            default -> versionBits(header) == 3 ? 1152 : 576;
+        };
+    }
+
+    /** @return whole frame size in bytes including the 4 header bytes */
+    public static int frameSize(int header) {
+        int padding = (header >>> 9) & 1;
+        int bitrate = bitrate(header);
+        int frequency = frequency(header);
+        return switch (layer(header)) {
+            case 1 -> (12 * bitrate / frequency + padding) * 4;
+            case 2 -> 144 * bitrate / frequency + padding;
+            default -> (versionBits(header) == 3 ? 144 : 72) * bitrate / frequency + padding;
+        };
+    }
+
+    /** @return size of the side information following the header (and CRC) of a layer III frame */
+    public static int sideInfoSize(int header) {
+        boolean mono = mode(header) == 3;
+        if (versionBits(header) == 3) {
+            return mono ? 17 : 32;
+        } else {
+            return mono ? 9 : 17;
+        }
+    }
+
+    /** @return microseconds played by one frame */
+    public static double microsPerFrame(int header) {
+        return samplesPerFrame(header) * 1_000_000d / frequency(header);
+    }
+}
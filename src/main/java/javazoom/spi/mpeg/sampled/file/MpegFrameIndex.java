@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Frame index (seek table) of an MPEG audio file.
+ * <p>
+ * built by a header only scan, the decoder never runs.
+ * frame byte offsets are stored as a {@code long} base per block of
+ * {@code 1 << BLOCK_SHIFT} frames plus an {@code int} delta per frame,
+ * sample positions are {@code frame * samplesPerFrame} because those
+ * are constant in one MPEG stream.
+ * <p>
+ * the index can be persisted to a sidecar file ({@link #SUFFIX}),
+ * it is validated by the source file length and the last modified time.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class MpegFrameIndex {
+
+    private static final Logger logger = getLogger(MpegFrameIndex.class.getName());
+
+    /** sidecar file suffix */
+    public static final String SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x4d46_4958; // "MFIX"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int BLOCK_SHIFT = 10;
+
+    /** bytes of the smallest frame, a sidecar claiming more frames than this allows is broken */
+    private static final int MIN_FRAME_SIZE = 24;
+
+    /** base offset per block */
+    private final long[] bases;
+    /** offset from the block base per frame */
+    private final int[] deltas;
+    /** number of frames */
+    private final int count;
+    /** offset just after the last frame */
+    private final long end;
+    /** the first frame header word */
+    private final int header;
+    private final int samplesPerFrame;
+    private final int sampleRate;
+    /** source file length for validation */
+    private final long sourceLength;
+    /** source file last modified time for validation */
+    private final long sourceModified;
+
+    private MpegFrameIndex(long[] bases, int[] deltas, int count, long end, int header, long sourceLength, long sourceModified) {
+        this.bases = bases;
+        this.deltas = deltas;
+        this.count = count;
+        this.end = end;
+        this.header = header;
+        this.samplesPerFrame = MpegFrameHeader.samplesPerFrame(header);
+        this.sampleRate = MpegFrameHeader.frequency(header);
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+    }
+
+    /** @return number of frames */
+    public int frameCount() {
+        return count;
+    }
+
+    /** @return the first frame header word */
+    public int header() {
+        return header;
+    }
+
+    /** @return PCM samples per channel in one frame */
+    public int samplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    /** @return sampling frequency in Hz */
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    /** @return total PCM samples per channel */
+    public long sampleCount() {
+        return (long) count * samplesPerFrame;
+    }
+
+    /** @return duration in microseconds */
+    public long durationMicros() {
+        return micros(count);
+    }
+
+    /**
+     * @param frame 0 ... {@link #frameCount()}
+     * @return byte offset of the frame, the end of the last frame for {@link #frameCount()}
+     */
+    public long offset(int frame) {
+        if (frame >= count) {
+            return end;
+        }
+        return bases[frame >>> BLOCK_SHIFT] + deltas[frame];
+    }
+
+    /** @return the first sample (per channel) of the frame */
+    public long sample(int frame) {
+        return (long) frame * samplesPerFrame;
+    }
+
+    /** @return start time of the frame in microseconds */
+    public long micros(int frame) {
+        return sample(frame) * 1_000_000L / sampleRate;
+    }
+
+    /**
+     * Finds the frame which contains the byte offset. O(log n).
+     *
+     * @return 0 ... {@link #frameCount()}, {@link #frameCount()} means the end of stream
+     */
+    public int frameAtOffset(long offset) {
+        if (offset >= end) {
+            return count;
+        }
+        int lo = 0;
+        int hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offset(mid) <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Finds the frame which contains the sample.
+     *
+     * @param sample per channel
+     * @return 0 ... {@link #frameCount()}, {@link #frameCount()} means the end of stream
+     */
+    public int frameAtSample(long sample) {
+        return (int) Math.min(Math.max(sample, 0) / samplesPerFrame, count);
+    }
+
+    /**
+     * Finds the frame which is played at the time.
+     *
+     * @return 0 ... {@link #frameCount()}, {@link #frameCount()} means the end of stream
+     */
+    public int frameAtMicros(long micros) {
+        return frameAtSample(micros * sampleRate / 1_000_000L);
+    }
+
+    /**
+     * @param origin byte offset which becomes 0
+     * @return an index whose offsets are from the origin, e.g. the payload of a container
+     */
+    public MpegFrameIndex relativeTo(long origin) {
+        long[] bases = this.bases.clone();
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] -= origin;
+        }
+        return new MpegFrameIndex(bases, deltas, count, end - origin, header, sourceLength, sourceModified);
+    }
+
+    /** @return true if this index was made from the file at its current state */
+    public boolean isValidFor(Path path) throws IOException {
+        return Files.size(path) == sourceLength && Files.getLastModifiedTime(path).toMillis() == sourceModified;
+    }
+
+    /** @return the sidecar file path for the file */
+    public static Path sidecarOf(Path path) {
+        return path.resolveSibling(path.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Gets an index for the file.
+     *
+     * @param sidecar when true, a valid sidecar file is used if exists,
+     *                otherwise the result of a scan is written to a sidecar file
+     */
+    public static MpegFrameIndex of(Path path, boolean sidecar) throws IOException {
+        return of(path, 0, Files.size(path), sidecar);
+    }
+
+    /**
+     * Gets an index for the audio data in a region of the file, e.g. the data chunk of RIFF/WAVE.
+     * offsets are from the start of the file.
+     *
+     * @param start offset where to start searching the first frame
+     * @param end end of the audio data
+     * @see #of(Path, boolean)
+     */
+    public static MpegFrameIndex of(Path path, long start, long end, boolean sidecar) throws IOException {
+        Path sidecarPath = sidecarOf(path);
+        if (sidecar && Files.exists(sidecarPath)) {
+            try {
+                MpegFrameIndex index = read(sidecarPath);
+                if (index.isValidFor(path)) {
+                    return index;
+                }
+                logger.log(Level.DEBUG, "stale sidecar: " + sidecarPath);
+            } catch (IOException e) {
+                logger.log(Level.DEBUG, "broken sidecar: " + sidecarPath + ", " + e.getMessage());
+            }
+        }
+        MpegFrameIndex index = scan(path, start, end);
+        if (sidecar) {
+            try {
+                index.write(sidecarPath);
+            } catch (IOException e) {
+                logger.log(Level.DEBUG, "cannot write sidecar: " + sidecarPath + ", " + e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Builds an index by walking frame headers only.
+     *
+     * @throws IOException no mpeg frame found
+     */
+    public static MpegFrameIndex scan(Path path) throws IOException {
+        return scan(path, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Builds an index of a region of the file by walking frame headers only.
+     *
+     * @param start offset where to start searching the first frame
+     * @param end end of the audio data, limited by the file size
+     * @throws IOException no mpeg frame found
+     */
+    public static MpegFrameIndex scan(Path path, long start, long end) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            return scan(channel, start, Math.min(end, channel.size()), modified);
+        }
+    }
+
+    /**
+     * Builds an index by walking frame headers only.
+     *
+     * @param start offset where to start searching the first frame, ID3v2 tag at there is skipped
+     * @param length end of the audio data
+     * @param modified last modified time of the source, for validation
+     * @throws IOException no mpeg frame found
+     */
+    public static MpegFrameIndex scan(FileChannel channel, long start, long length, long modified) throws IOException {
+        Window window = new Window(channel, length);
+        long pos = start + id3v2Size(window, start);
+        pos = findSync(window, pos, 0);
+        if (pos < 0) {
+            throw new IOException("no mpeg frame found");
+        }
+        int first = window.getInt(pos);
+
+        long[] bases = new long[16];
+        int[] deltas = new int[1 << BLOCK_SHIFT];
+        int count = 0;
+        long end = pos;
+        while (pos + 4 <= length) {
+            int h = window.getInt(pos);
+            if (!MpegFrameHeader.isCompatible(first, h)) {
+                long next = findSync(window, pos + 1, first);
+                if (next < 0) {
+                    break;
+                }
+logger.log(Level.TRACE, "resync: " + pos + " -> " + next);
+                pos = next;
+                continue;
+            }
+            int size = MpegFrameHeader.frameSize(h);
+            if (pos + size > length) {
+                break;
+            }
+            int block = count >>> BLOCK_SHIFT;
+            if (block >= bases.length) {
+                bases = Arrays.copyOf(bases, bases.length * 2);
+            }
+            if (count >= deltas.length) {
+                deltas = Arrays.copyOf(deltas, deltas.length * 2);
+            }
+            if ((count & ((1 << BLOCK_SHIFT) - 1)) == 0) {
+                bases[block] = pos;
+            }
+            deltas[count] = (int) (pos - bases[block]);
+            count++;
+            pos += size;
+            end = pos;
+        }
+logger.log(Level.DEBUG, "frames: " + count + ", end: " + end);
+        return new MpegFrameIndex(Arrays.copyOf(bases, (count >>> BLOCK_SHIFT) + 1), Arrays.copyOf(deltas, count),
+                count, end, first, channel.size(), modified);
+    }
+
+    /** @return ID3v2 tag size including header and footer, 0 when no tag */
+    private static long id3v2Size(Window window, long pos) throws IOException {
+        if (pos + 10 > window.length ||
+                window.get(pos) != 'I' || window.get(pos + 1) != 'D' || window.get(pos + 2) != '3') {
+            return 0;
+        }
+        int flags = window.get(pos + 5);
+        int size = (window.get(pos + 6) & 0x7f) << 21 | (window.get(pos + 7) & 0x7f) << 14 |
+                (window.get(pos + 8) & 0x7f) << 7 | (window.get(pos + 9) & 0x7f);
+        return 10 + size + ((flags & 0x10) != 0 ? 10 : 0);
+    }
+
+    /**
+     * Searches a frame header followed by a compatible one.
+     *
+     * @param first when not 0, the header must be compatible with this
+     * @return offset, -1 when not found
+     */
+    private static long findSync(Window window, long pos, int first) throws IOException {
+        for (; pos + 4 <= window.length; pos++) {
+            if (window.get(pos) != (byte) 0xff) {
+                continue;
+            }
+            int h = window.getInt(pos);
+            if (first == 0 ? !MpegFrameHeader.isValid(h) : !MpegFrameHeader.isCompatible(first, h)) {
+                continue;
+            }
+            long next = pos + MpegFrameHeader.frameSize(h);
+            if (next + 4 > window.length || MpegFrameHeader.isCompatible(h, window.getInt(next))) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /** writes this index into the file */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeLong(sourceLength);
+            dos.writeLong(sourceModified);
+            dos.writeInt(header);
+            dos.writeInt(count);
+            dos.writeLong(end);
+            dos.writeInt(bases.length);
+            for (long base : bases) {
+                dos.writeLong(base);
+            }
+            for (int i = 0; i < count; i++) {
+                dos.writeInt(deltas[i]);
+            }
+        }
+    }
+
+    /** reads an index from the file */
+    public static MpegFrameIndex read(Path path) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (dis.readInt() != MAGIC) {
+                throw new IOException("not a frame index: " + path);
+            }
+            int version = dis.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unsupported frame index version: " + version);
+            }
+            long sourceLength = dis.readLong();
+            long sourceModified = dis.readLong();
+            int header = dis.readInt();
+            int count = dis.readInt();
+            long end = dis.readLong();
+            int blocks = dis.readInt();
+            // checked before allocating by them
+            if (!MpegFrameHeader.isValid(header) || sourceLength < 0 || count < 0 || count > sourceLength / MIN_FRAME_SIZE ||
+                    end < 0 || end > sourceLength || blocks != (count >>> BLOCK_SHIFT) + 1) {
+                throw new IOException("broken frame index: " + path);
+            }
+            long[] bases = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                bases[i] = dis.readLong();
+            }
+            int[] deltas = new int[count];
+            for (int i = 0; i < count; i++) {
+                deltas[i] = dis.readInt();
+            }
+            return new MpegFrameIndex(bases, deltas, count, end, header, sourceLength, sourceModified);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MpegFrameIndex{frames=" + count + ", samplesPerFrame=" + samplesPerFrame + ", sampleRate=" + sampleRate + ", end=" + end + "}";
+    }
+
+    /** sequential read window over a channel */
+    private static final class Window {
+
+        final FileChannel channel;
+        final long length;
+        final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long start = 0;
+
+        Window(FileChannel channel, long length) {
+            this.channel = channel;
+            this.length = length;
+            buffer.limit(0);
+        }
+
+        byte get(long pos) throws IOException {
+            ensure(pos, 1);
+            return buffer.get((int) (pos - start));
+        }
+
+        int getInt(long pos) throws IOException {
+            ensure(pos, 4);
+            return buffer.getInt((int) (pos - start));
+        }
+
+        private void ensure(long pos, int n) throws IOException {
+            if (pos >= start && pos + n <= start + buffer.limit()) {
+                return;
+            }
+            buffer.clear();
+            buffer.limit((int) Math.max(0, Math.min(buffer.capacity(), length - pos)));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, pos + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            start = pos;
+            if (buffer.limit() < n) {
+                throw new EOFException("pos: " + pos);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Finds MPEG audio frames in junk or corrupted data.
+ * <p>
+ * 0xff bytes are searched 8 bytes at a time (SWAR), only those are examined as
+ * a header, and a candidate is confirmed when the following frame headers
+ * chain consistently ({@link MpegFrameHeader#isCompatible(int, int)}).
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class MpegSyncScanner {
+
+    private static final Logger logger = getLogger(MpegSyncScanner.class.getName());
+
+    private MpegSyncScanner() {
+    }
+
+    /** following frames to confirm a candidate by default */
+    public static final int DEFAULT_CHAIN = 3;
+
+    private static final long LOW7 = 0x7f7f_7f7f_7f7f_7f7fL;
+
+    /**
+     * @param buffer big endian, absolute positions, the search ends at the limit
+     * @param from absolute position to start
+     * @return position of the next valid header, -1 when not found
+     */
+    public static int next(ByteBuffer buffer, int from) {
+        int limit = buffer.limit() - 3;
+        int p = from;
+        while (p + 8 <= limit) {
+            // 0x80 on exactly the 0xff bytes of the word
+            long x = ~buffer.getLong(p);
+            long m = ~(((x & LOW7) + LOW7) | x | LOW7);
+            while (m != 0) {
+                int k = Long.numberOfLeadingZeros(m) >>> 3;
+                if (MpegFrameHeader.isValid(buffer.getInt(p + k))) {
+                    return p + k;
+                }
+                m &= ~(0x80L << (56 - (k << 3)));
+            }
+            p += 8;
+        }
+        for (; p < limit; p++) {
+            if (buffer.get(p) == (byte) 0xff && MpegFrameHeader.isValid(buffer.getInt(p))) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param buffer absolute positions
+     * @param position a valid header
+     * @param chain following headers to check
+     * @return following compatible headers found until the limit, -1 when the chain is broken
+     */
+    public static int chain(ByteBuffer buffer, int position, int chain) {
+        int first = buffer.getInt(position);
+        long p = position + MpegFrameHeader.frameSize(first);
+        int n = 0;
+        while (n < chain && p + 4 <= buffer.limit()) {
+            int h = buffer.getInt((int) p);
+            if (!MpegFrameHeader.isCompatible(first, h)) {
+                return -1;
+            }
+            n++;
+            p += MpegFrameHeader.frameSize(h);
+        }
+        return n;
+    }
+
+    /**
+     * Searches the whole data, frames running off the limit are taken as confirmed.
+     *
+     * @param buffer absolute positions, from the position to the limit is searched
+     * @return position of the first confirmed header, -1 when not found
+     */
+    public static int find(ByteBuffer buffer, int chain) {
+        int p = buffer.position();
+        while ((p = next(buffer, p)) >= 0) {
+            if (chain(buffer, p, chain) >= 0) {
+                return p;
+            }
+            p++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a stream those bytes start at a confirmed frame header.
+     * the data before the frame is dropped, the stream ends when no frame is confirmed within the budget.
+     *
+     * @param in source
+     * @param passThrough bytes passed as is before searching, e.g. an ID3v2 tag
+     * @param budget bytes to search past {@code passThrough}
+     * @param chain following headers to confirm a frame
+     */
+    public static InputStream sync(InputStream in, long passThrough, int budget, int chain) {
+        return new SyncInputStream(in, passThrough, budget, chain);
+    }
+
+    /** Reads ahead only until a frame is confirmed. */
+    private static final class SyncInputStream extends FilterInputStream {
+
+        /** the largest frame (2881 bytes, MPEG 2.5 layer II) */
+        private static final int MAX_FRAME_LENGTH = 2881;
+
+        private static final int STEP = 4096;
+
+        private long passThrough;
+        private final int budget;
+        private final int chain;
+        /** null after all the searched bytes are served */
+        private ByteBuffer buffer;
+        /** bytes dropped before the frame, -1 until searched */
+        private int skipped = -1;
+        /** no frame is found */
+        private boolean ended;
+
+        SyncInputStream(InputStream in, long passThrough, int budget, int chain) {
+            super(in);
+            this.passThrough = passThrough;
+            this.budget = budget;
+            this.chain = chain;
+        }
+
+        /** searches a frame, the buffer is positioned there or is empty */
+        private void search() throws IOException {
+            int cap = budget + MAX_FRAME_LENGTH * (chain + 1);
+            buffer = ByteBuffer.allocate(Math.min(STEP, cap));
+            buffer.limit(0);
+            boolean eof = false;
+            int from = 0;
+            while (true) {
+                int p = next(buffer, from);
+                if (p >= budget) {
+                    break;
+                } else if (p >= 0) {
+                    int n = chain(buffer, p, chain);
+                    if (n == chain || (n >= 0 && eof)) {
+                        buffer.position(p);
+                        skipped = p;
+logger.log(Level.TRACE, "sync: " + p);
+                        return;
+                    } else if (n < 0) {
+                        from = p + 1;
+                        continue;
+                    }
+                    // more data for the chain
+                } else {
+                    from = Math.max(buffer.limit() - 3, 0);
+                }
+                if (eof || from >= budget || buffer.limit() >= cap) {
+                    break;
+                }
+                eof = fill(cap);
+            }
+            skipped = buffer.limit();
+            buffer = ByteBuffer.allocate(0);
+            ended = true;
+logger.log(Level.DEBUG, "no frame within " + skipped + " bytes");
+        }
+
+        /** @return true when the source ends */
+        private boolean fill(int cap) throws IOException {
+            int limit = buffer.limit();
+            if (limit == buffer.capacity()) {
+                buffer = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), Math.min(buffer.capacity() * 2, cap)));
+            }
+            int n = in.read(buffer.array(), limit, Math.min(STEP, buffer.capacity() - limit));
+            if (n < 0) {
+                buffer.limit(limit);
+                return true;
+            }
+            buffer.limit(limit + n);
+            return false;
+        }
+
+        /** @return true when reading from the buffer, an empty one means the end of stream */
+        private boolean buffered() throws IOException {
+            if (passThrough > 0) {
+                return false;
+            }
+            if (skipped < 0) {
+                search();
+            }
+            if (!ended && buffer != null && !buffer.hasRemaining()) {
+                buffer = null;
+            }
+            return buffer != null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (buffered()) {
+                return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+            }
+            int c = super.read();
+            if (c >= 0 && passThrough > 0) {
+                passThrough--;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (buffered()) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.get(b, off, n);
+                return n;
+            }
+            if (passThrough > 0) {
+                len = (int) Math.min(len, passThrough);
+            }
+            int n = super.read(b, off, len);
+            if (n > 0 && passThrough > 0) {
+                passThrough -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (buffered()) {
+                int k = (int) Math.min(n, buffer.remaining());
+                buffer.position(buffer.position() + k);
+                return k;
+            }
+            if (passThrough > 0) {
+                n = Math.min(n, passThrough);
+            }
+            long k = super.skip(n);
+            if (k > 0 && passThrough > 0) {
+                passThrough -= k;
+            }
+            return k;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (passThrough == 0 && buffer != null) {
+                return buffer.remaining();
+            }
+            return super.available();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
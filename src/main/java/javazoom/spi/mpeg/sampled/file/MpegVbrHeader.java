@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+
+/**
+ * Xing/Info, VBRI and LAME extension headers in the first frame.
+ * <p>
+ * a VBRI table is converted into a Xing style 100 entries TOC,
+ * so both are used in the same way.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class MpegVbrHeader {
+
+    /** "Xing", "Info" or "VBRI" */
+    private final String type;
+    /** audio frames, not including this header frame, -1 when unknown */
+    private final int frames;
+    /** stream bytes from this header frame, -1 when unknown */
+    private final int bytes;
+    /** 100 entries, time percent to byte position / 256, null when unknown */
+    private final byte[] toc;
+    /** LAME version string, null when no LAME tag */
+    private String encoder;
+    /** encoder delay in samples, -1 when unknown */
+    private int delay = -1;
+    /** encoder padding in samples, -1 when unknown */
+    private int padding = -1;
+
+    private MpegVbrHeader(String type, int frames, int bytes, byte[] toc) {
+        this.type = type;
+        this.frames = frames;
+        this.bytes = bytes;
+        this.toc = toc;
+    }
+
+    /** @return "Xing" (vbr), "Info" (cbr) or "VBRI" */
+    public String getType() {
+        return type;
+    }
+
+    /** @return audio frames, not including the header frame, -1 when unknown */
+    public int getFrames() {
+        return frames;
+    }
+
+    /** @return stream bytes from the header frame, -1 when unknown */
+    public int getBytes() {
+        return bytes;
+    }
+
+    /** @return 100 entries TOC, null when unknown */
+    public byte[] getToc() {
+        return toc;
+    }
+
+    /** @return LAME version string, null when no LAME tag */
+    public String getEncoder() {
+        return encoder;
+    }
+
+    /** @return encoder delay in samples, -1 when unknown */
+    public int getDelay() {
+        return delay;
+    }
+
+    /** @return encoder padding in samples, -1 when unknown */
+    public int getPadding() {
+        return padding;
+    }
+
+    /** @return true when TOC seeking is available */
+    public boolean isSeekable() {
+        return toc != null && bytes > 0 && frames > 0;
+    }
+
+    /**
+     * TOC lookup, time to bytes.
+     *
+     * @param fraction 0.0 ... 1.0 of the duration
+     * @return byte offset from the header frame
+     */
+    public long byteAt(double fraction) {
+        double percent = Math.min(Math.max(fraction * 100, 0), 100);
+        int a = (int) Math.min(percent, 99);
+        double fa = toc[a] & 0xff;
+        double fb = a < 99 ? toc[a + 1] & 0xff : 256;
+        double fx = fa + (fb - fa) * (percent - a);
+        return (long) (fx / 256 * bytes);
+    }
+
+    /**
+     * Reverse TOC lookup, bytes to time.
+     *
+     * @param offset byte offset from the header frame
+     * @return 0.0 ... 1.0 of the duration
+     */
+    public double fractionAt(long offset) {
+        double fx = Math.min(Math.max(offset * 256d / bytes, 0), 256);
+        int a = 0;
+        while (a < 99 && (toc[a + 1] & 0xff) <= fx) {
+            a++;
+        }
+        double fa = toc[a] & 0xff;
+        double fb = a < 99 ? toc[a + 1] & 0xff : 256;
+        double d = fb > fa ? (fx - fa) / (fb - fa) : 0;
+        return Math.min((a + d) / 100, 1);
+    }
+
+    /**
+     * Parses the first frame.
+     *
+     * @param frame whole frame including the 4 header bytes
+     * @return null when no header found
+     */
+    public static MpegVbrHeader parse(byte[] frame, int offset, int length) {
+        if (length < 4) {
+            return null;
+        }
+        int header = readInt(frame, offset);
+        if (!MpegFrameHeader.isValid(header)) {
+            return null;
+        }
+        int xing = 4 + (MpegFrameHeader.hasCrc(header) ? 2 : 0) + MpegFrameHeader.sideInfoSize(header);
+        if (MpegFrameHeader.layer(header) == 3 && xing + 8 <= length) {
+            String tag = new String(frame, offset + xing, 4, StandardCharsets.ISO_8859_1);
+            if (tag.equals("Xing") || tag.equals("Info")) {
+                return parseXing(tag, frame, offset, length, xing);
+            }
+        }
+        int vbri = 4 + 32;
+        if (vbri + 26 <= length && new String(frame, offset + vbri, 4, StandardCharsets.ISO_8859_1).equals("VBRI")) {
+            return parseVbri(frame, offset, length, vbri);
+        }
+        return null;
+    }
+
+    private static MpegVbrHeader parseXing(String tag, byte[] frame, int offset, int length, int xing) {
+        int flags = readInt(frame, offset + xing + 4);
+        int p = xing + 8;
+        int frames = -1;
+        int bytes = -1;
+        byte[] toc = null;
+        if ((flags & 1) != 0 && p + 4 <= length) {
+            frames = readInt(frame, offset + p);
+            p += 4;
+        }
+        if ((flags & 2) != 0 && p + 4 <= length) {
+            bytes = readInt(frame, offset + p);
+            p += 4;
+        }
+        if ((flags & 4) != 0 && p + 100 <= length) {
+            toc = new byte[100];
+            System.arraycopy(frame, offset + p, toc, 0, 100);
+        }
+        MpegVbrHeader vbr = new MpegVbrHeader(tag, frames, bytes, toc);
+        // LAME tag follows the full sized Xing header
+        int lame = xing + 120;
+        if (lame + 24 <= length) {
+            String version = new String(frame, offset + lame, 9, StandardCharsets.ISO_8859_1);
+            if (version.startsWith("LAME") || version.startsWith("Lavf") || version.startsWith("Lavc") || version.startsWith("GOGO")) {
+                vbr.encoder = version.trim();
+                int d = offset + lame + 21;
+                vbr.delay = ((frame[d] & 0xff) << 4) | ((frame[d + 1] & 0xf0) >> 4);
+                vbr.padding = ((frame[d + 1] & 0x0f) << 8) | (frame[d + 2] & 0xff);
+            }
+        }
+        return vbr;
+    }
+
+    private static MpegVbrHeader parseVbri(byte[] frame, int offset, int length, int vbri) {
+        int p = offset + vbri;
+        int delay = readShort(frame, p + 6);
+        int bytes = readInt(frame, p + 10);
+        int frames = readInt(frame, p + 14);
+        int entries = readShort(frame, p + 18);
+        int scale = readShort(frame, p + 20);
+        int entrySize = readShort(frame, p + 22);
+        int framesPerEntry = readShort(frame, p + 24);
+        byte[] toc = null;
+        if (entries > 0 && entrySize >= 1 && entrySize <= 4 && vbri + 26 + entries * entrySize <= length &&
+                bytes > 0 && frames > 0 && framesPerEntry > 0) {
+            // accumulate byte positions per entry, then resample into 100 time percents
+            long[] positions = new long[entries + 1];
+            int q = p + 26;
+            for (int i = 0; i < entries; i++) {
+                long size = 0;
+                for (int j = 0; j < entrySize; j++) {
+                    size = (size << 8) | (frame[q++] & 0xff);
+                }
+                positions[i + 1] = positions[i] + size * scale;
+            }
+            toc = new byte[100];
+            for (int i = 0; i < 100; i++) {
+                double entry = i / 100d * frames / framesPerEntry;
+                int e = Math.min((int) entry, entries);
+                double position = e < entries ? positions[e] + (positions[e + 1] - positions[e]) * (entry - e) : positions[entries];
+                toc[i] = (byte) Math.min(position * 256 / bytes, 255);
+            }
+        }
+        MpegVbrHeader vbr = new MpegVbrHeader("VBRI", frames, bytes, toc);
+        vbr.delay = delay;
+        return vbr;
+    }
+
+    /**
+     * Restores the seek information from properties filled by {@link #fill(Map)}.
+     *
+     * @return null when not available
+     */
+    public static MpegVbrHeader fromProperties(Map<String, ?> props) {
+        if (props.get("mp3.vbr.header") instanceof String type &&
+                props.get("mp3.vbr.frames") instanceof Integer frames &&
+                props.get("mp3.vbr.bytes") instanceof Integer bytes &&
+                props.get("mp3.vbr.toc") instanceof byte[] toc && toc.length == 100) {
+            return new MpegVbrHeader(type, frames, bytes, toc);
+        }
+        return null;
+    }
+
+    /**
+     * Adds "mp3.vbr.*", "mp3.lame.*" properties.
+     */
+    void fill(Map<String, Object> props) {
+        props.put("mp3.vbr.header", type);
+        if (frames >= 0) props.put("mp3.vbr.frames", frames);
+        if (bytes >= 0) props.put("mp3.vbr.bytes", bytes);
+        if (toc != null) props.put("mp3.vbr.toc", toc.clone());
+        if (encoder != null) props.put("mp3.lame.encoder", encoder);
+        if (delay >= 0) props.put("mp3.lame.delay", delay);
+        if (padding >= 0) props.put("mp3.lame.padding", padding);
+    }
+
+    private static int readInt(byte[] b, int p) {
+        return (b[p] & 0xff) << 24 | (b[p + 1] & 0xff) << 16 | (b[p + 2] & 0xff) << 8 | (b[p + 3] & 0xff);
+    }
+
+    private static int readShort(byte[] b, int p) {
+        return (b[p] & 0xff) << 8 | (b[p + 1] & 0xff);
+    }
+
+    @Override
+    public String toString() {
+        return "MpegVbrHeader{" + type + ", frames=" + frames + ", bytes=" + bytes + ", toc=" + (toc != null) +
+                ", encoder=" + encoder + ", delay=" + delay + ", padding=" + padding + "}";
+    }
+}
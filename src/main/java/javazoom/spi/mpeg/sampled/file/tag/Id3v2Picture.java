@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file.tag;
+
+/**
+ * An embedded picture (APIC, PIC) of an ID3v2 tag, the image data is not held.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ * @see Id3v2Tag#getPictures()
+ * @see Id3v2Tag#transferPicture(Id3v2Picture, java.nio.channels.WritableByteChannel)
+ */
+public final class Id3v2Picture {
+
+    /** frame index in the tag */
+    final int index;
+
+    /** start of the image data in the frame body */
+    final int start;
+
+    private final String mimeType;
+
+    private final int pictureType;
+
+    private final String description;
+
+    private final long offset;
+
+    private final int length;
+
+    Id3v2Picture(int index, int start, String mimeType, int pictureType, String description, long offset, int length) {
+        this.index = index;
+        this.start = start;
+        this.mimeType = mimeType;
+        this.pictureType = pictureType;
+        this.description = description;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** @return e.g. "image/jpeg", for v2.2 derived from the image format */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /** @return ID3v2 picture type, 3 is the front cover */
+    public int getPictureType() {
+        return pictureType;
+    }
+
+    /** @return description, may be empty */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return offset of the image data from the start of the tag,
+     *         -1 when the data is not stored as is (unsynchronised)
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /** @return image data length in bytes */
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "Id3v2Picture{" + mimeType + ", type: " + pictureType + ", offset: " + offset + ", length: " + length + ", " + description + "}";
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file.tag;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javazoom.spi.mpeg.sampled.file.CharConverter;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * ID3v2 frame catalog over a ByteBuffer.
+ * <p>
+ * frame ids, offsets and sizes are indexed in one pass without creating objects per frame,
+ * values are decoded when those are asked for the first time.
+ * v2.2, v2.3 and v2.4 are supported, including unsynchronisation,
+ * syncsafe frame sizes of v2.4 and extended headers.
+ * compressed and encrypted frames are indexed but not decoded.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ * @see "https://id3.org/id3v2.4.0-structure"
+ */
+public final class Id3v2Tag {
+
+    private static final Logger logger = getLogger(Id3v2Tag.class.getName());
+
+    /** header flag */
+    private static final int UNSYNCHRONISATION = 0x80;
+    /** header flag */
+    private static final int EXTENDED_HEADER = 0x40;
+    /** header flag, v2.4 */
+    private static final int FOOTER = 0x10;
+
+    /** frame format flag, v2.4 */
+    private static final int FRAME_GROUPING = 0x0040;
+    /** frame format flag, v2.4 */
+    private static final int FRAME_COMPRESSION = 0x0008;
+    /** frame format flag, v2.4 */
+    private static final int FRAME_ENCRYPTION = 0x0004;
+    /** frame format flag, v2.4 */
+    private static final int FRAME_UNSYNCHRONISATION = 0x0002;
+    /** frame format flag, v2.4 */
+    private static final int FRAME_DATA_LENGTH = 0x0001;
+    /** frame format flag, v2.3 */
+    private static final int FRAME_COMPRESSION_23 = 0x0080;
+    /** frame format flag, v2.3 */
+    private static final int FRAME_ENCRYPTION_23 = 0x0040;
+    /** frame format flag, v2.3 */
+    private static final int FRAME_GROUPING_23 = 0x0020;
+
+    private static final Charset[] ENCODINGS = {
+            StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16, StandardCharsets.UTF_16BE, StandardCharsets.UTF_8
+    };
+
+    /** frames, v2.2/2.3 unsynchronisation is already removed */
+    private final ByteBuffer buffer;
+
+    private final int version;
+
+    private final int flags;
+
+    /** whole tag size including the header and the footer */
+    private final int tagSize;
+
+    private int count;
+
+    /** packed frame ids */
+    private int[] ids = new int[16];
+
+    /** offset of frame header in {@link #buffer} */
+    private int[] offsets = new int[16];
+
+    /** stored frame body sizes */
+    private int[] sizes = new int[16];
+
+    private short[] frameFlags = new short[16];
+
+    /** decoded text cache */
+    private String[] texts;
+
+    private Id3v2Tag(ByteBuffer buffer, int version, int flags, int tagSize) {
+        this.buffer = buffer;
+        this.version = version;
+        this.flags = flags;
+        this.tagSize = tagSize;
+    }
+
+    /**
+     * Indexes the tag.
+     *
+     * @param tag starts with "ID3" at its position, not modified
+     * @return null when it is not an ID3v2 tag or the version is not supported
+     */
+    public static Id3v2Tag parse(ByteBuffer tag) {
+        ByteBuffer b = tag.slice();
+        if (b.remaining() < 10 || b.get(0) != 'I' || b.get(1) != 'D' || b.get(2) != '3') {
+            return null;
+        }
+        int version = b.get(3) & 0xff;
+        if (version < 2 || version > 4) {
+            logger.log(Level.DEBUG, "unsupported ID3v2 version: " + version);
+            return null;
+        }
+        int flags = b.get(5) & 0xff;
+        int size = syncsafe(b, 6);
+        int end = Math.min(10 + size, b.limit());
+        ByteBuffer frames = b.slice(10, end - 10);
+        if (version < 4 && (flags & UNSYNCHRONISATION) != 0) {
+            // whole tag including the extended header, frame sizes count the restored bytes
+            frames = ByteBuffer.wrap(resync(frames));
+        }
+        Id3v2Tag id3v2 = new Id3v2Tag(frames, version, flags, 10 + size + ((flags & FOOTER) != 0 ? 10 : 0));
+        id3v2.index();
+        return id3v2;
+    }
+
+    /**
+     * Indexes the tag at the start of the file, only the tag region is mapped,
+     * the audio data and not asked image data are never read.
+     *
+     * @return null when the file does not start with an ID3v2 tag
+     */
+    public static Id3v2Tag read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(10);
+            if (channel.read(header, 0) < 10 || header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3') {
+                return null;
+            }
+            long size = Math.min(10 + syncsafe(header, 6) + ((header.get(5) & FOOTER) != 0 ? 10 : 0), channel.size());
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /** one pass over frame headers */
+    private void index() {
+        int p = 0;
+        if (version > 2 && (flags & EXTENDED_HEADER) != 0 && buffer.limit() >= 4) {
+            // v2.3 size excludes itself, v2.4 syncsafe size includes itself
+            p = version == 3 ? 4 + buffer.getInt(0) : syncsafe(buffer, 0);
+        }
+        int headerSize = version == 2 ? 6 : 10;
+        while (p >= 0 && p + headerSize <= buffer.limit() && isFrameId(p)) {
+            int id;
+            int size;
+            int frameFlag = 0;
+            if (version == 2) {
+                id = (buffer.get(p) & 0xff) << 16 | (buffer.get(p + 1) & 0xff) << 8 | (buffer.get(p + 2) & 0xff);
+                size = (buffer.get(p + 3) & 0xff) << 16 | (buffer.get(p + 4) & 0xff) << 8 | (buffer.get(p + 5) & 0xff);
+            } else {
+                id = buffer.getInt(p);
+                size = version == 4 ? frameSize24(p) : buffer.getInt(p + 4);
+                frameFlag = buffer.getShort(p + 8) & 0xffff;
+            }
+            if (size < 0 || p + headerSize + size > buffer.limit()) {
+                logger.log(Level.DEBUG, "broken frame at " + p + ", size: " + size);
+                break;
+            }
+            if (count == ids.length) {
+                int n = count * 2;
+                ids = Arrays.copyOf(ids, n);
+                offsets = Arrays.copyOf(offsets, n);
+                sizes = Arrays.copyOf(sizes, n);
+                frameFlags = Arrays.copyOf(frameFlags, n);
+            }
+            ids[count] = id;
+            offsets[count] = p;
+            sizes[count] = size;
+            frameFlags[count] = (short) frameFlag;
+            count++;
+            p += headerSize + size;
+        }
+        texts = new String[count];
+logger.log(Level.TRACE, "ID3v2." + version + ": " + count + " frames");
+    }
+
+    /**
+     * v2.4 sizes are syncsafe, but some writers (old iTunes) wrote plain integers.
+     * a plain size is taken when the syncsafe one does not point to the next frame and the plain one does.
+     */
+    private int frameSize24(int p) {
+        int plain = buffer.getInt(p + 4);
+        if ((plain & 0x8080_8080) != 0) {
+            return plain;
+        }
+        int syncsafe = syncsafe(buffer, p + 4);
+        if (syncsafe == plain || isNextFrame(p + 10 + syncsafe)) {
+            return syncsafe;
+        }
+        return isNextFrame(p + 10 + plain) ? plain : syncsafe;
+    }
+
+    /** @return true at the end of frames, padding or a frame header */
+    private boolean isNextFrame(int p) {
+        return p == buffer.limit() ||
+                (p < buffer.limit() && buffer.get(p) == 0) ||
+                (p + 10 <= buffer.limit() && isFrameId(p));
+    }
+
+    /** @return true if a frame id consists of A-Z and 0-9 */
+    private boolean isFrameId(int p) {
+        int n = version == 2 ? 3 : 4;
+        for (int i = 0; i < n; i++) {
+            int c = buffer.get(p + i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return 2, 3 or 4 */
+    public int getVersion() {
+        return version;
+    }
+
+    /** @return whole tag size including the header and the footer */
+    public int getTagSize() {
+        return tagSize;
+    }
+
+    /** @return number of frames */
+    public int getFrameCount() {
+        return count;
+    }
+
+    /** @return packed frame id, 3 or 4 ascii bytes big endian */
+    public int getCode(int index) {
+        return ids[index];
+    }
+
+    /** @return frame id */
+    public String getId(int index) {
+        int n = version == 2 ? 3 : 4;
+        char[] c = new char[n];
+        for (int i = 0; i < n; i++) {
+            c[i] = (char) ((ids[index] >>> (8 * (n - 1 - i))) & 0xff);
+        }
+        return new String(c);
+    }
+
+    private static final int APIC = code("APIC");
+    private static final int PIC = code("PIC");
+
+    /** @return packed id for {@link #getCode(int)} comparison */
+    public static int code(String id) {
+        int code = 0;
+        for (int i = 0; i < id.length(); i++) {
+            code = code << 8 | (id.charAt(i) & 0xff);
+        }
+        return code;
+    }
+
+    /** @return index of the first frame of the id, -1 when not found */
+    public int indexOf(String id) {
+        int code = code(id);
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == code) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** @return true when the frame body can be read as is from the tag bytes */
+    public boolean isRaw(int index) {
+        return !isUnsynchronised(index) && !isCompressed(index) &&
+                (version != 4 || (frameFlags[index] & (FRAME_DATA_LENGTH | FRAME_GROUPING)) == 0) &&
+                (version != 3 || (frameFlags[index] & FRAME_GROUPING_23) == 0) &&
+                !(version < 4 && (flags & UNSYNCHRONISATION) != 0);
+    }
+
+    /**
+     * @return offset of the stored frame body from the start of the tag,
+     *         valid for the original bytes only when {@link #isRaw(int)}
+     */
+    public int getOffset(int index) {
+        return 10 + offsets[index] + (version == 2 ? 6 : 10);
+    }
+
+    /** @return stored frame body size */
+    public int getLength(int index) {
+        return sizes[index];
+    }
+
+    private boolean isUnsynchronised(int index) {
+        return version == 4 && ((flags & UNSYNCHRONISATION) != 0 || (frameFlags[index] & FRAME_UNSYNCHRONISATION) != 0);
+    }
+
+    private boolean isCompressed(int index) {
+        return switch (version) {
+            case 3 -> (frameFlags[index] & (FRAME_COMPRESSION_23 | FRAME_ENCRYPTION_23)) != 0;
+            case 4 -> (frameFlags[index] & (FRAME_COMPRESSION | FRAME_ENCRYPTION)) != 0;
+            default -> false;
+        };
+    }
+
+    /**
+     * Frame body, a view of the tag when possible.
+     * unsynchronisation is removed, a grouping id and a data length indicator are skipped.
+     *
+     * @return null when the frame is compressed or encrypted
+     */
+    public ByteBuffer getBody(int index) {
+        if (isCompressed(index)) {
+            return null;
+        }
+        int start = offsets[index] + (version == 2 ? 6 : 10);
+        int end = start + sizes[index];
+        if (version == 3 && (frameFlags[index] & FRAME_GROUPING_23) != 0) {
+            start++;
+        }
+        if (version == 4) {
+            if ((frameFlags[index] & FRAME_GROUPING) != 0) {
+                start++;
+            }
+            if ((frameFlags[index] & FRAME_DATA_LENGTH) != 0) {
+                start += 4;
+            }
+        }
+        if (start > end) {
+            return null;
+        }
+        ByteBuffer body = buffer.slice(start, end - start);
+        if (isUnsynchronised(index)) {
+            body = ByteBuffer.wrap(resync(body));
+        }
+        return body.asReadOnlyBuffer();
+    }
+
+    /**
+     * Text of the first text frame (T***) or comment (COMM, COM) of the id, decoded at the first call.
+     *
+     * @return null when not found
+     */
+    public String getText(String id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        if (texts[index] == null) {
+            ByteBuffer body = getBody(index);
+            if (body == null || body.remaining() < 1) {
+                return null;
+            }
+            boolean comment = id.equals("COMM") || id.equals("COM");
+            texts[index] = decode(body, comment);
+        }
+        return texts[index];
+    }
+
+    /** */
+    private static String decode(ByteBuffer body, boolean comment) {
+        int encoding = body.get(0);
+        if (encoding < 0 || encoding >= ENCODINGS.length) {
+            return null;
+        }
+        int p = 1;
+        if (comment) {
+            // language and short content description
+            p = Math.min(4, body.limit());
+            p = skipString(body, p, encoding);
+        }
+        return decode(body, p, encoding);
+    }
+
+    /** @return a string from p to the terminator or the end */
+    private static String decode(ByteBuffer body, int p, int encoding) {
+        int end = body.limit();
+        int unit = encoding == 1 || encoding == 2 ? 2 : 1;
+        // the first terminator ends the string
+        for (int i = p; i + unit <= end; i += unit) {
+            if (body.get(i) == 0 && (unit == 1 || body.get(i + 1) == 0)) {
+                end = i;
+                break;
+            }
+        }
+        byte[] bytes = new byte[end - p];
+        body.get(p, bytes);
+        if (encoding == 0) {
+            return CharConverter.createString(bytes, 0, bytes.length).trim();
+        }
+        return new String(bytes, ENCODINGS[encoding]).trim();
+    }
+
+    /**
+     * Lists embedded pictures (APIC, PIC), image data is not read.
+     */
+    public List<Id3v2Picture> getPictures() {
+        List<Id3v2Picture> pictures = new ArrayList<>();
+        int code = version == 2 ? PIC : APIC;
+        for (int i = 0; i < count; i++) {
+            if (ids[i] != code) {
+                continue;
+            }
+            ByteBuffer body = getBody(i);
+            if (body == null || body.remaining() < 2) {
+                continue;
+            }
+            int encoding = body.get(0);
+            if (encoding < 0 || encoding >= ENCODINGS.length) {
+                continue;
+            }
+            String mimeType;
+            int p;
+            if (version == 2) {
+                if (body.remaining() < 5) {
+                    continue;
+                }
+                String format = decode(body.slice(1, 3), 0, 0).toLowerCase(Locale.ROOT);
+                mimeType = format.equals("jpg") ? "image/jpeg" : "image/" + format;
+                p = 4;
+            } else {
+                p = skipString(body, 1, 0);
+                mimeType = decode(body.slice(0, p), 1, 0);
+                if (mimeType.isEmpty()) {
+                    mimeType = "image/";
+                }
+            }
+            if (p >= body.limit()) {
+                continue;
+            }
+            int pictureType = body.get(p++) & 0xff;
+            int start = skipString(body, p, encoding);
+            String description = decode(body.slice(0, start), p, encoding);
+            int length = body.limit() - start;
+            long offset = isRaw(i) ? getOffset(i) + start : -1;
+            pictures.add(new Id3v2Picture(i, start, mimeType, pictureType, description, offset, length));
+        }
+        return pictures;
+    }
+
+    /**
+     * Writes the image data to the channel.
+     * when the tag is over a mapped file, only the picture's pages are touched.
+     *
+     * @return bytes written
+     */
+    public long transferPicture(Id3v2Picture picture, WritableByteChannel channel) throws IOException {
+        ByteBuffer body = getBody(picture.index);
+        if (body == null) {
+            throw new IOException("cannot read frame: " + getId(picture.index));
+        }
+        ByteBuffer data = body.slice(picture.start, body.limit() - picture.start);
+        long n = 0;
+        while (data.hasRemaining()) {
+            n += channel.write(data);
+        }
+        return n;
+    }
+
+    /** @return position after the terminator */
+    static int skipString(ByteBuffer body, int p, int encoding) {
+        int unit = encoding == 1 || encoding == 2 ? 2 : 1;
+        while (p + unit <= body.limit()) {
+            boolean zero = body.get(p) == 0 && (unit == 1 || body.get(p + 1) == 0);
+            p += unit;
+            if (zero) {
+                break;
+            }
+        }
+        return Math.min(p, body.limit());
+    }
+
+    /** 28 bit syncsafe integer */
+    static int syncsafe(ByteBuffer b, int p) {
+        return (b.get(p) & 0x7f) << 21 | (b.get(p + 1) & 0x7f) << 14 | (b.get(p + 2) & 0x7f) << 7 | (b.get(p + 3) & 0x7f);
+    }
+
+    /** removes 0x00 after 0xff */
+    static byte[] resync(ByteBuffer b) {
+        byte[] out = new byte[b.remaining()];
+        int n = 0;
+        int limit = b.limit();
+        for (int i = b.position(); i < limit; i++) {
+            byte c = b.get(i);
+            out[n++] = c;
+            if (c == (byte) 0xff && i + 1 < limit && b.get(i + 1) == 0) {
+                i++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    @Override
+    public String toString() {
+        return "ID3v2." + version + " frames: " + count + ", size: " + tagSize;
+    }
+}
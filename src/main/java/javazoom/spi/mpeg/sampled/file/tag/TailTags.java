@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file.tag;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Tags at the end of a file, ID3v1, APEv2 and Lyrics3v2.
+ * <p>
+ * those are located by positional reads of a few hundred bytes from the end,
+ * so the cost does not depend on the file length.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class TailTags {
+
+    private static final Logger logger = getLogger(TailTags.class.getName());
+
+    /** APE text values larger than this are ignored */
+    private static final int MAX_VALUE_SIZE = 64 * 1024;
+
+    /** positional reader */
+    @FunctionalInterface
+    public interface Source {
+
+        /**
+         * @return a buffer filled with exactly {@code length} bytes at the position
+         * @throws EOFException when not enough bytes
+         */
+        ByteBuffer read(long position, int length) throws IOException;
+
+        /** @return true when {@link #read} returns views of the source without copying */
+        default boolean isView() {
+            return false;
+        }
+
+        /**
+         * source over a seekable channel, the channel position is restored after reading.
+         * reads of a {@link FileChannel} are positional and thread safe.
+         */
+        static Source of(SeekableByteChannel channel) {
+            if (channel instanceof FileChannel fileChannel) {
+                return (position, length) -> {
+                    ByteBuffer buffer = ByteBuffer.allocate(length);
+                    while (buffer.hasRemaining()) {
+                        if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+                            throw new EOFException("position: " + position);
+                        }
+                    }
+                    return buffer.flip();
+                };
+            }
+            return (position, length) -> {
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                long current = channel.position();
+                try {
+                    channel.position(position);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) < 0) {
+                            throw new EOFException("position: " + position);
+                        }
+                    }
+                } finally {
+                    channel.position(current);
+                }
+                return buffer.flip();
+            };
+        }
+
+        /** source over a whole file buffer, e.g. a memory mapped file, no copy */
+        static Source of(ByteBuffer whole) {
+            return new Source() {
+                @Override
+                public ByteBuffer read(long position, int length) throws IOException {
+                    if (position < 0 || position + length > whole.limit()) {
+                        throw new EOFException("position: " + position);
+                    }
+                    return whole.slice((int) position, length);
+                }
+
+                @Override
+                public boolean isView() {
+                    return true;
+                }
+            };
+        }
+    }
+
+    /** raw ID3v1 tag, null when not found */
+    private byte[] id3v1;
+
+    /** APEv2 text items, keys are lower case */
+    private final Map<String, String> ape = new LinkedHashMap<>();
+
+    /** Lyrics3v2 fields, keys are field ids in lower case */
+    private final Map<String, String> lyrics3 = new LinkedHashMap<>();
+
+    /** offset where the tail tags begin, the end of audio data */
+    private long audioEnd;
+
+    private TailTags() {
+    }
+
+    /** @return raw 128 bytes of ID3v1 tag, null when not found */
+    public byte[] getId3v1() {
+        return id3v1;
+    }
+
+    /** @return APEv2 text items, keys are lower case */
+    public Map<String, String> getApe() {
+        return ape;
+    }
+
+    /** @return Lyrics3v2 fields, keys are field ids in lower case */
+    public Map<String, String> getLyrics3() {
+        return lyrics3;
+    }
+
+    /** @return offset where the tail tags begin */
+    public long getAudioEnd() {
+        return audioEnd;
+    }
+
+    /**
+     * Reads tail tags.
+     *
+     * @param length whole length of the source
+     */
+    public static TailTags read(Source source, long length) throws IOException {
+        TailTags tags = new TailTags();
+        long end = length;
+        if (end >= 128) {
+            ByteBuffer b = source.read(end - 128, 128);
+            if (b.get(0) == 'T' && b.get(1) == 'A' && b.get(2) == 'G') {
+                tags.id3v1 = new byte[128];
+                b.get(0, tags.id3v1);
+                end -= 128;
+            }
+        }
+        // APEv2 and Lyrics3v2 are in either order
+        boolean found = true;
+        while (found) {
+            found = false;
+            if (tags.lyrics3.isEmpty()) {
+                long start = tags.readLyrics3(source, end);
+                if (start >= 0) {
+                    end = start;
+                    found = true;
+                    continue;
+                }
+            }
+            if (tags.ape.isEmpty()) {
+                long start = tags.readApe(source, end);
+                if (start >= 0) {
+                    end = start;
+                    found = true;
+                }
+            }
+        }
+        tags.audioEnd = end;
+logger.log(Level.TRACE, "tail tags: id3v1: " + (tags.id3v1 != null) + ", ape: " + tags.ape.keySet() + ", lyrics3: " + tags.lyrics3.keySet() + ", audio end: " + end);
+        return tags;
+    }
+
+    /**
+     * @return start offset of the tag, -1 when not found
+     */
+    private long readLyrics3(Source source, long end) throws IOException {
+        if (end < 15 + 11) {
+            return -1;
+        }
+        ByteBuffer b = source.read(end - 15, 15);
+        String trailer = ascii(b, 6, 9);
+        if (!trailer.equals("LYRICS200")) {
+            return -1;
+        }
+        int size;
+        try {
+            size = Integer.parseInt(ascii(b, 0, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        long start = end - 15 - size;
+        if (size < 11 || start < 0) {
+            return -1;
+        }
+        ByteBuffer body = source.read(start, size);
+        if (!ascii(body, 0, 11).equals("LYRICSBEGIN")) {
+            return -1;
+        }
+        int p = 11;
+        while (p + 8 <= size) {
+            String id = ascii(body, p, 3);
+            int length;
+            try {
+                length = Integer.parseInt(ascii(body, p + 3, 5));
+            } catch (NumberFormatException e) {
+                break;
+            }
+            p += 8;
+            if (p + length > size) {
+                break;
+            }
+            lyrics3.put(id.toLowerCase(Locale.ROOT), new String(bytes(body, p, length), StandardCharsets.ISO_8859_1).trim());
+            p += length;
+        }
+        return start;
+    }
+
+    /**
+     * @return start offset of the tag, -1 when not found
+     */
+    private long readApe(Source source, long end) throws IOException {
+        if (end < 32) {
+            return -1;
+        }
+        ByteBuffer footer = source.read(end - 32, 32).order(ByteOrder.LITTLE_ENDIAN);
+        if (!ascii(footer, 0, 8).equals("APETAGEX")) {
+            return -1;
+        }
+        int size = footer.getInt(12); // items and footer
+        int count = footer.getInt(16);
+        int flags = footer.getInt(20);
+        boolean hasHeader = (flags & 0x8000_0000) != 0;
+        long items = end - size;
+        long start = items - (hasHeader ? 32 : 0);
+        if (size < 32 || start < 0) {
+            return -1;
+        }
+        long p = items;
+        long limit = end - 32;
+        for (int i = 0; i < count && p + 9 <= limit; i++) {
+            ByteBuffer item = source.read(p, 8).order(ByteOrder.LITTLE_ENDIAN);
+            int valueSize = item.getInt(0);
+            int itemFlags = item.getInt(4);
+            // key is 2 to 255 ascii chars terminated by 0
+            ByteBuffer k = source.read(p + 8, (int) Math.min(256, limit - p - 8));
+            int keyLength = 0;
+            while (keyLength < k.limit() && k.get(keyLength) != 0) {
+                keyLength++;
+            }
+            if (keyLength == k.limit() || valueSize < 0) {
+                break;
+            }
+            String key = ascii(k, 0, keyLength).toLowerCase(Locale.ROOT);
+            long value = p + 8 + keyLength + 1;
+            // utf-8 text items only, binary (cover art etc.) are skipped without reading
+            if (((itemFlags >> 1) & 3) == 0 && valueSize <= MAX_VALUE_SIZE && value + valueSize <= limit) {
+                ape.put(key, new String(bytes(source.read(value, valueSize), 0, valueSize), StandardCharsets.UTF_8).trim());
+            }
+            p = value + valueSize;
+        }
+        return start;
+    }
+
+    /**
+     * Merges APEv2 and Lyrics3v2 values into standard properties when those are not set yet.
+     */
+    public void fill(Map<String, Object> props) {
+        for (Map.Entry<String, String> e : ape.entrySet()) {
+            props.put("mp3.apetag." + e.getKey(), e.getValue());
+        }
+        for (Map.Entry<String, String> e : lyrics3.entrySet()) {
+            props.put("mp3.lyrics3tag." + e.getKey(), e.getValue());
+        }
+        putIfEmpty(props, "title", ape.get("title"), lyrics3.get("ett"));
+        putIfEmpty(props, "author", ape.get("artist"), lyrics3.get("ear"));
+        putIfEmpty(props, "album", ape.get("album"), lyrics3.get("eal"));
+        putIfEmpty(props, "date", ape.get("year"), null);
+        putIfEmpty(props, "comment", ape.get("comment"), null);
+        putIfEmpty(props, "mp3.id3tag.genre", ape.get("genre"), null);
+        putIfEmpty(props, "mp3.id3tag.track", ape.get("track"), null);
+    }
+
+    private static void putIfEmpty(Map<String, Object> props, String key, String value1, String value2) {
+        Object current = props.get(key);
+        if (current != null && !current.toString().isEmpty()) {
+            return;
+        }
+        String value = value1 != null && !value1.isEmpty() ? value1 : value2;
+        if (value != null && !value.isEmpty()) {
+            props.put(key, value);
+        }
+    }
+
+    private static String ascii(ByteBuffer b, int offset, int length) {
+        return new String(bytes(b, offset, length), StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bytes(ByteBuffer b, int offset, int length) {
+        byte[] bytes = new byte[length];
+        b.get(offset, bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.sampled.mp3;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.sound.sampled.AudioFormat;
+
+import javazoom.spi.mpeg.Mp3Decoder;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Transcodes MPEG audio files into mp3 files by LAME on a shared executor.
+ * <p>
+ * the memory is bounded by the PCM budget given, it is split into workers those own
+ * a decoder and the buffers, and those are reused job after job. a job runs only when
+ * a worker is free, so nothing more is allocated however many jobs are queued,
+ * and no thread of the executor waits for a worker. {@link #submit} blocks while
+ * the queue is full.
+ * <p>
+ * resampling is left to LAME, the output sample rate is the effective one of the encoder.
+ * a LAME encoder is created per job because it cannot be restarted after it is finished.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+public final class TranscodeEngine implements AutoCloseable {
+
+    private static final Logger logger = getLogger(TranscodeEngine.class.getName());
+
+    /** PCM bytes of a worker, same as the PCM buffer of LAME */
+    public static final int PCM_BLOCK = 2048 * 16;
+
+    /** encoded bytes read at once */
+    private static final int INPUT_BLOCK = 16 * 1024;
+
+    /** the largest frame in 16 bit samples, 1152 samples stereo */
+    private static final int MAX_FRAME_SAMPLES = 1152 * 2;
+
+    /** Result of a job. */
+    public static final class Result {
+
+        private final Path source;
+        private final Path target;
+        private final long pcmBytes;
+        private final long encodedBytes;
+        private final long audioMicros;
+        private final long nanos;
+
+        private Result(Path source, Path target, long pcmBytes, long encodedBytes, long audioMicros, long nanos) {
+            this.source = source;
+            this.target = target;
+            this.pcmBytes = pcmBytes;
+            this.encodedBytes = encodedBytes;
+            this.audioMicros = audioMicros;
+            this.nanos = nanos;
+        }
+
+        /** */
+        public Path source() {
+            return source;
+        }
+
+        /** */
+        public Path target() {
+            return target;
+        }
+
+        /** @return PCM bytes decoded */
+        public long pcmBytes() {
+            return pcmBytes;
+        }
+
+        /** @return mp3 bytes written */
+        public long encodedBytes() {
+            return encodedBytes;
+        }
+
+        /** @return duration of the audio */
+        public long audioMicros() {
+            return audioMicros;
+        }
+
+        /** @return wall clock time of the job */
+        public long nanos() {
+            return nanos;
+        }
+
+        /** @return PCM bytes per second */
+        public double pcmBytesPerSecond() {
+            return nanos > 0 ? pcmBytes * 1e9 / nanos : 0;
+        }
+
+        /** @return seconds of audio per second */
+        public double realtimeFactor() {
+            return nanos > 0 ? audioMicros * 1e3 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{source: " + source + ", target: " + target + ", pcmBytes: " + pcmBytes +
+                    ", encodedBytes: " + encodedBytes + ", audioMicros: " + audioMicros +
+                    ", millis: " + nanos / 1_000_000 + ", realtime: " + String.format("%.1f", realtimeFactor()) + "x}";
+        }
+    }
+
+    /** a queued job */
+    private static final class Job {
+
+        final Path source;
+        final Path target;
+        /** LAME parameters in its properties, may be null */
+        final AudioFormat targetFormat;
+        final CompletableFuture<Result> future = new CompletableFuture<>();
+
+        Job(Path source, Path target, AudioFormat targetFormat) {
+            this.source = source;
+            this.target = target;
+            this.targetFormat = targetFormat;
+        }
+    }
+
+    /** Owns a decoder and buffers, reused job after job. */
+    private static final class Worker {
+
+        final Mp3Decoder decoder = new Mp3Decoder();
+        final ByteBuffer input = ByteBuffer.allocate(INPUT_BLOCK);
+        final ByteBuffer pcm = ByteBuffer.allocate(PCM_BLOCK).order(ByteOrder.LITTLE_ENDIAN);
+        final ShortBuffer samples = pcm.asShortBuffer();
+        /** 1.25 * samples + 7200, the worst case of LAME */
+        final byte[] encoded = new byte[PCM_BLOCK / 2 * 5 / 4 + 7200];
+    }
+
+    private final Executor executor;
+
+    private final BlockingQueue<Job> queue;
+
+    private final ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param executor where jobs run, shared, not shut down by this engine
+     * @param pcmBudget PCM bytes of all the workers, one worker at least
+     * @param queueCapacity jobs waiting for a worker at most
+     */
+    public TranscodeEngine(Executor executor, int pcmBudget, int queueCapacity) {
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        int workers = Math.max(1, pcmBudget / PCM_BLOCK);
+        for (int i = 0; i < workers; i++) {
+            idle.add(new Worker());
+        }
+logger.log(Level.DEBUG, "workers: " + workers + ", queue: " + queueCapacity);
+    }
+
+    /**
+     * Queues a job with the default LAME parameters.
+     *
+     * @see #submit(Path, Path, AudioFormat)
+     */
+    public CompletableFuture<Result> submit(Path source, Path target) throws InterruptedException {
+        return submit(source, target, null);
+    }
+
+    /**
+     * Queues a job, blocks while the queue is full.
+     *
+     * @param targetFormat LAME parameters in its properties same as {@link Mp3LameFormatConversionProvider}, may be null
+     * @return completes with an {@link IOException} when the job fails
+     * @throws IllegalStateException closed
+     */
+    public CompletableFuture<Result> submit(Path source, Path target, AudioFormat targetFormat) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+        Job job = new Job(source, target, targetFormat);
+        queue.put(job);
+        dispatch();
+        return job.future;
+    }
+
+    /** pairs queued jobs with idle workers */
+    private void dispatch() {
+        while (!queue.isEmpty()) {
+            Worker worker = idle.poll();
+            if (worker == null) {
+                return;
+            }
+            Job job = queue.poll();
+            if (job == null) {
+                idle.add(worker);
+                continue;
+            }
+            try {
+                executor.execute(() -> run(worker, job));
+            } catch (RejectedExecutionException e) {
+                idle.add(worker);
+                job.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** runs the job and the following ones while the queue has */
+    private void run(Worker worker, Job job) {
+        do {
+            if (!job.future.isDone()) {
+                try {
+                    job.future.complete(transcode(worker, job));
+                } catch (Throwable t) {
+                    logger.log(Level.DEBUG, job.source + ": " + t.getMessage());
+                    job.future.completeExceptionally(t);
+                }
+            }
+        } while ((job = queue.poll()) != null);
+        idle.add(worker);
+        dispatch();
+    }
+
+    /** decode, encode */
+    private static Result transcode(Worker worker, Job job) throws IOException {
+        long start = System.nanoTime();
+        Mp3Decoder decoder = worker.decoder;
+        decoder.reset();
+        ByteBuffer input = worker.input.clear();
+        ShortBuffer samples = worker.samples.clear();
+        byte[] encoded = worker.encoded;
+        long pcmBytes = 0;
+        long encodedBytes = 0;
+        long audioMicros = 0;
+        Lame encoder = null;
+        try (FileChannel in = FileChannel.open(job.source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(job.target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            in.position(id3v2Size(in));
+            while (true) {
+                int r = in.read(input);
+                input.flip();
+                while (true) {
+                    if (samples.remaining() < MAX_FRAME_SAMPLES && samples.position() > 0) {
+                        encodedBytes += write(out, encoded, encoder.encodeBuffer(worker.pcm.array(), samples.position() * 2, encoded));
+                        pcmBytes += samples.position() * 2L;
+                        samples.clear();
+                    }
+                    Mp3Decoder.Frame frame;
+                    try {
+                        frame = decoder.decodeFrame(input, samples);
+                    } catch (IOException e) {
+logger.log(Level.DEBUG, job.source + ": " + e.getMessage());
+                        continue;
+                    }
+                    if (frame == null) {
+                        break;
+                    }
+                    if (encoder == null) {
+                        AudioFormat format = new AudioFormat(frame.sampleRate(), 16, frame.channels(), true, false);
+                        encoder = job.targetFormat != null ? new Lame(format, job.targetFormat) : new Lame(format);
+                    }
+                    audioMicros += frame.samples() * 1_000_000L / frame.sampleRate();
+                }
+                input.compact();
+                if (r < 0) {
+                    break;
+                }
+                if (!input.hasRemaining()) {
+                    throw new IOException("no frame in " + INPUT_BLOCK + " bytes at " + (in.position() - INPUT_BLOCK));
+                }
+            }
+            if (encoder == null) {
+                throw new IOException("no mpeg frame found: " + job.source);
+            }
+            if (samples.position() > 0) {
+                encodedBytes += write(out, encoded, encoder.encodeBuffer(worker.pcm.array(), samples.position() * 2, encoded));
+                pcmBytes += samples.position() * 2L;
+            }
+            encodedBytes += write(out, encoded, encoder.encodeFinish(encoded));
+            encoder = null;
+        } finally {
+            if (encoder != null) {
+                encoder.close();
+            }
+        }
+        Result result = new Result(job.source, job.target, pcmBytes, encodedBytes, audioMicros, System.nanoTime() - start);
+logger.log(Level.DEBUG, result);
+        return result;
+    }
+
+    /** @return ID3v2 tag size including header and footer, 0 when no tag */
+    private static long id3v2Size(FileChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(10);
+        while (header.hasRemaining() && in.read(header, header.position()) >= 0) {
+            // fill
+        }
+        if (header.position() < 10 || header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3') {
+            return 0;
+        }
+        int size = (header.get(6) & 0x7f) << 21 | (header.get(7) & 0x7f) << 14 |
+                (header.get(8) & 0x7f) << 7 | (header.get(9) & 0x7f);
+        return 10 + size + ((header.get(5) & 0x10) != 0 ? 10 : 0);
+    }
+
+    /** @return length */
+    private static int write(FileChannel out, byte[] encoded, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded, 0, length);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return length;
+    }
+
+    /** stops accepting jobs, queued jobs are cancelled, running jobs are finished */
+    @Override
+    public void close() {
+        closed = true;
+        Job job;
+        while ((job = queue.poll()) != null) {
+            job.future.cancel(false);
+        }
+    }
+}
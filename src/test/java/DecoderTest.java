@@ -5,8 +5,11 @@
  */
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -14,17 +17,22 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.DataLine;
+import javax.sound.sampled.FloatControl;
 import javax.sound.sampled.LineEvent;
 import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.sound.sampled.spi.AudioFileReader;
 
+import javazoom.spi.mpeg.sampled.convert.DecodeStatus;
+import javazoom.spi.mpeg.sampled.convert.DecodedMpegAudioInputStream;
+import javazoom.spi.mpeg.sampled.convert.DecoderControls;
 import javazoom.spi.mpeg.sampled.file.MpegAudioFileReader;
 import vavi.util.Debug;
 import vavi.util.properties.annotation.Property;
@@ -36,6 +44,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledIf;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -132,6 +141,168 @@ Debug.println("done");
         line.close();
     }
 
+    @Test
+    @DisplayName("direct read decodes the same as the circular buffer")
+    void testDirect() throws Exception {
+        Path in = Paths.get("src/test/resources/test2.mp3");
+        byte[][] results = new byte[2][];
+        for (int i = 0; i < 2; i++) {
+            AudioInputStream originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+            AudioFormat originalAudioFormat = originalAudioInputStream.getFormat();
+            AudioFormat targetAudioFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                    originalAudioFormat.getSampleRate(),
+                    16,
+                    originalAudioFormat.getChannels(),
+                    originalAudioFormat.getChannels() * 2,
+                    originalAudioFormat.getSampleRate(),
+                    false,
+                    Map.of("mp3.direct", i == 1));
+            try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+                // odd sizes, frames are split over reads
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                byte[] buf = new byte[1000];
+                int r;
+                while ((r = audioInputStream.read(buf, 0, buf.length)) >= 0) {
+                    baos.write(buf, 0, r);
+                }
+                results[i] = baos.toByteArray();
+            }
+        }
+Debug.println("bytes: " + results[0].length);
+        assertTrue(results[0].length > 0);
+        assertArrayEquals(results[0], results[1]);
+    }
+
+    @Test
+    @DisplayName("float output is the synthesis output before 16 bit quantization")
+    void testFloat() throws Exception {
+        Path in = Paths.get("src/test/resources/test2.mp3");
+        AudioInputStream originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+        AudioFormat originalAudioFormat = originalAudioInputStream.getFormat();
+        int channels = originalAudioFormat.getChannels();
+        AudioFormat targetAudioFormat = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT,
+                originalAudioFormat.getSampleRate(),
+                32,
+                channels,
+                channels * 4,
+                originalAudioFormat.getSampleRate(),
+                true);
+        assertTrue(AudioSystem.isConversionSupported(targetAudioFormat, originalAudioFormat));
+        byte[] floats;
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+            assertEquals(AudioFormat.Encoding.PCM_FLOAT, audioInputStream.getFormat().getEncoding());
+            floats = audioInputStream.readAllBytes();
+        }
+        originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+        targetAudioFormat = new AudioFormat(originalAudioFormat.getSampleRate(), 16, channels, true, true);
+        byte[] shorts;
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+            shorts = audioInputStream.readAllBytes();
+        }
+        assertEquals(shorts.length * 2, floats.length);
+        ByteBuffer fb = ByteBuffer.wrap(floats);
+        ByteBuffer sb = ByteBuffer.wrap(shorts);
+        for (int i = 0; i < shorts.length / 2; i++) {
+            float f = fb.getFloat(i * 4) * 32768;
+            short s = sb.getShort(i * 2);
+            assertEquals(Math.max(-32768, Math.min(32767, (int) f)), s);
+        }
+    }
+
+    @Test
+    @DisplayName("24 and 32 bit integer output from the synthesis output")
+    void testWide() throws Exception {
+        Path in = Paths.get("src/test/resources/test2.mp3");
+        ByteBuffer fb = ByteBuffer.wrap(decode(in, AudioFormat.Encoding.PCM_FLOAT, 32, true));
+        ByteBuffer b24 = ByteBuffer.wrap(decode(in, AudioFormat.Encoding.PCM_SIGNED, 24, false)).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer b32 = ByteBuffer.wrap(decode(in, AudioFormat.Encoding.PCM_SIGNED, 32, true));
+        int samples = fb.capacity() / 4;
+        assertEquals(samples * 3, b24.capacity());
+        assertEquals(samples * 4, b32.capacity());
+        for (int i = 0; i < samples; i++) {
+            float f = fb.getFloat(i * 4) * 32768;
+            int s24 = (b24.get(i * 3) & 0xff) | (b24.get(i * 3 + 1) & 0xff) << 8 | b24.get(i * 3 + 2) << 16;
+            assertEquals(Math.max(-8388608, Math.min(8388607, (int) (f * 256))), s24);
+            assertEquals((int) (f * 65536), b32.getInt(i * 4));
+        }
+    }
+
+    @Test
+    @DisplayName("gain control folded into the synthesis output")
+    void testGain() throws Exception {
+        Path in = Paths.get("src/test/resources/test2.mp3");
+        ByteBuffer expected = ByteBuffer.wrap(decode(in, AudioFormat.Encoding.PCM_FLOAT, 32, true));
+
+        AudioInputStream originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+        AudioFormat originalAudioFormat = originalAudioInputStream.getFormat();
+        int channels = originalAudioFormat.getChannels();
+        AudioFormat targetAudioFormat = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT,
+                originalAudioFormat.getSampleRate(),
+                32,
+                channels,
+                channels * 4,
+                originalAudioFormat.getSampleRate(),
+                true);
+        ByteBuffer actual;
+        try (DecodedMpegAudioInputStream audioInputStream = (DecodedMpegAudioInputStream) AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+            FloatControl gain = (FloatControl) audioInputStream.getControl(FloatControl.Type.MASTER_GAIN);
+            gain.setValue((float) (20 * Math.log10(0.5)));
+            assertEquals(20 * Math.log10(0.5), gain.getValue(), 0.01);
+            FloatControl band = (FloatControl) audioInputStream.getControl(DecoderControls.EqualizerBand.of(31));
+            assertEquals(0, band.getValue());
+            actual = ByteBuffer.wrap(audioInputStream.readAllBytes());
+        }
+        assertEquals(expected.capacity(), actual.capacity());
+        for (int i = 0; i < expected.capacity() / 4; i++) {
+            assertEquals(expected.getFloat(i * 4) / 2, actual.getFloat(i * 4), 1e-6);
+        }
+    }
+
+    @Test
+    @DisplayName("frame listener")
+    void testFrameListener() throws Exception {
+        Path in = Paths.get("src/test/resources/test2.mp3");
+        AudioInputStream originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+        AudioFormat originalAudioFormat = originalAudioInputStream.getFormat();
+        AudioFormat targetAudioFormat = new AudioFormat(originalAudioFormat.getSampleRate(), 16, originalAudioFormat.getChannels(), true, false);
+        AtomicInteger frames = new AtomicInteger();
+        DecodeStatus last = new DecodeStatus();
+        try (DecodedMpegAudioInputStream audioInputStream = (DecodedMpegAudioInputStream) AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+            audioInputStream.addFrameListener(status -> {
+                assertEquals(frames.incrementAndGet(), status.frame());
+                assertTrue(status.bitrate() > 0);
+                last.copyFrom(status);
+            });
+            audioInputStream.readAllBytes();
+
+            DecodeStatus status = audioInputStream.getDecodeStatus(new DecodeStatus());
+            Map<String, Object> properties = audioInputStream.properties();
+            assertEquals(last.frame(), status.frame());
+            assertEquals(status.frame(), properties.get("mp3.frame"));
+            assertEquals(status.bytePosition(), properties.get("mp3.position.byte"));
+            assertEquals(status.microseconds(), properties.get("mp3.position.microseconds"));
+        }
+        assertTrue(frames.get() > 0);
+    }
+
+    /** decodes all */
+    private static byte[] decode(Path in, AudioFormat.Encoding encoding, int bits, boolean bigEndian) throws Exception {
+        AudioInputStream originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+        AudioFormat originalAudioFormat = originalAudioInputStream.getFormat();
+        int channels = originalAudioFormat.getChannels();
+        AudioFormat targetAudioFormat = new AudioFormat(encoding,
+                originalAudioFormat.getSampleRate(),
+                bits,
+                channels,
+                channels * bits / 8,
+                originalAudioFormat.getSampleRate(),
+                bigEndian);
+        assertTrue(AudioSystem.isConversionSupported(targetAudioFormat, originalAudioFormat));
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+            return audioInputStream.readAllBytes();
+        }
+    }
+
     @Test
     @DisplayName("https://github.com/umjammer/mp3spi/issues/5")
     void test3() throws Exception {
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * Mp3DecoderTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class Mp3DecoderTest {
+
+    static final Path in = Paths.get("src/test/resources/test2.mp3");
+
+    @Test
+    void testShort() throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(in));
+        ShortBuffer out = ShortBuffer.allocate(44100 * 2 * 60);
+        Mp3Decoder decoder = new Mp3Decoder();
+        int frames = 0;
+        Mp3Decoder.Frame frame;
+        while ((frame = decoder.decodeFrame(bytes, out)) != null) {
+            assertEquals(44100, frame.sampleRate());
+            frames++;
+        }
+        out.flip();
+        System.err.println("frames: " + frames);
+
+        ShortBuffer expected = ByteBuffer.wrap(decode()).asShortBuffer();
+        assertEquals(expected.remaining(), out.remaining());
+        assertEquals(expected, out);
+    }
+
+    @Test
+    void testReset() throws Exception {
+        byte[] bytes = Files.readAllBytes(in);
+        ShortBuffer out = ShortBuffer.allocate(44100 * 2 * 60);
+        Mp3Decoder decoder = new Mp3Decoder();
+        // a part of a frame is left in the input
+        ByteBuffer half = ByteBuffer.wrap(bytes, 0, bytes.length / 2);
+        while (decoder.decodeFrame(half, out) != null) {
+            // decoded
+        }
+        decoder.reset();
+        out.clear();
+        ByteBuffer whole = ByteBuffer.wrap(bytes);
+        while (decoder.decodeFrame(whole, out) != null) {
+            // decoded
+        }
+        out.flip();
+
+        ShortBuffer expected = ByteBuffer.wrap(decode()).asShortBuffer();
+        assertEquals(expected, out);
+    }
+
+    @Test
+    void testRefill() throws Exception {
+        FloatBuffer out = FloatBuffer.allocate(44100 * 2 * 60);
+        Mp3Decoder decoder = new Mp3Decoder();
+        ByteBuffer bytes = ByteBuffer.allocate(4096);
+        try (InputStream is = Files.newInputStream(in)) {
+            byte[] chunk = new byte[1000];
+            int r;
+            while ((r = is.read(chunk)) > 0) {
+                bytes.put(chunk, 0, r);
+                bytes.flip();
+                while (decoder.decodeFrame(bytes, out) != null) {
+                    // decoded
+                }
+                bytes.compact();
+            }
+        }
+        out.flip();
+
+        ShortBuffer expected = ByteBuffer.wrap(decode()).asShortBuffer();
+        assertEquals(expected.remaining(), out.remaining());
+        for (int i = 0; i < expected.remaining(); i++) {
+            assertEquals(expected.get(i), (short) Math.max(-32768, Math.min(32767, (int) (out.get(i) * 32768))));
+        }
+    }
+
+    @Test
+    void testNeedMore() throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(in), 0, 100);
+        assertNull(new Mp3Decoder().decodeFrame(bytes, ShortBuffer.allocate(1152 * 2)));
+        assertEquals(0, bytes.position(), "an incomplete ID3v2 tag is kept");
+    }
+
+    /** 16 bit big endian by the spi */
+    static byte[] decode() throws Exception {
+        AudioInputStream originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+        AudioFormat originalAudioFormat = originalAudioInputStream.getFormat();
+        AudioFormat targetAudioFormat = new AudioFormat(originalAudioFormat.getSampleRate(), 16, originalAudioFormat.getChannels(), true, true);
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+            return audioInputStream.readAllBytes();
+        }
+    }
+}
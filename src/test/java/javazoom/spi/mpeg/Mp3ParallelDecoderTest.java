@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.concurrent.ForkJoinPool;
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import static javazoom.spi.mpeg.Mp3DecoderTest.decode;
+import static javazoom.spi.mpeg.Mp3DecoderTest.in;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * Mp3ParallelDecoderTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class Mp3ParallelDecoderTest {
+
+    @Test
+    void testDecode() throws Exception {
+        byte[] expected = decode();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // small chunks for many boundaries
+            Mp3ParallelDecoder decoder = new Mp3ParallelDecoder(pool, 7);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            long written = decoder.decode(in, Channels.newChannel(baos), ByteOrder.BIG_ENDIAN);
+            assertEquals(expected.length, written);
+            assertArrayEquals(expected, baos.toByteArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAudioInputStream() throws Exception {
+        byte[] expected = decode();
+
+        byte[] actual;
+        try (AudioInputStream ais = new Mp3ParallelDecoder().getAudioInputStream(in, ByteOrder.BIG_ENDIAN)) {
+            assertEquals(44100, ais.getFormat().getSampleRate());
+            assertEquals(16, ais.getFormat().getSampleSizeInBits());
+            actual = ais.readAllBytes();
+        }
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.sound.sampled.AudioSystem;
+
+import javazoom.spi.mpeg.sampled.file.tag.Id3v2Picture;
+import javazoom.spi.mpeg.sampled.file.tag.Id3v2Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Id3v2TagTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class Id3v2TagTest {
+
+    static final Path path = Paths.get("src/test/resources/test2.mp3");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCatalog() throws Exception {
+        Id3v2Tag tag = Id3v2Tag.parse(ByteBuffer.wrap(Files.readAllBytes(path)));
+        assertNotNull(tag);
+        assertEquals(3, tag.getVersion());
+        assertEquals(2233, tag.getTagSize());
+        assertEquals(7, tag.getFrameCount());
+        assertEquals("TALB", tag.getId(0));
+        assertTrue(tag.isRaw(0));
+        assertEquals("Pop", tag.getText("TCON"));
+        assertEquals("2022", tag.getText("TYER"));
+    }
+
+    @Test
+    void testProperties() throws Exception {
+        Map<String, Object> props = AudioSystem.getAudioFileFormat(path.toFile()).properties();
+        Id3v2Tag tag = (Id3v2Tag) props.get("mp3.id3tag.v2.tag");
+        assertNotNull(tag);
+        assertEquals(tag.getText("TALB"), props.get("album"));
+        assertEquals(tag.getText("TIT2"), props.get("title"));
+        assertEquals("3", props.get("mp3.id3tag.v2.version"));
+    }
+
+    @Test
+    void testPropertiesNotMapped() throws Exception {
+        Map<String, Object> props;
+        System.setProperty("mp3spi.mmap", "false");
+        try {
+            props = new MpegAudioFileReader().getAudioFileFormat(path).properties();
+        } finally {
+            System.clearProperty("mp3spi.mmap");
+        }
+        // the catalog would hold a copy of the tag
+        assertFalse(props.containsKey("mp3.id3tag.v2.tag"));
+        assertEquals(Id3v2Tag.read(path).getText("TALB"), props.get("album"));
+        assertEquals("3", props.get("mp3.id3tag.v2.version"));
+    }
+
+    @Test
+    void testPictures() throws Exception {
+        byte[] image = new byte[100_000];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (i * 7);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(0);
+        body.write("image/png\0".getBytes(StandardCharsets.ISO_8859_1));
+        body.write(3);
+        body.write("cover\0".getBytes(StandardCharsets.ISO_8859_1));
+        body.write(image);
+        int n = body.size();
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(new byte[] {'T', 'I', 'T', '2', 0, 0, 0, 3, 0, 0, 0, 'h', 'i'});
+        frames.write(new byte[] {'A', 'P', 'I', 'C', (byte) (n >>> 24), (byte) (n >>> 16), (byte) (n >>> 8), (byte) n, 0, 0});
+        body.writeTo(frames);
+        int size = frames.size();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(new byte[] {'I', 'D', '3', 3, 0, 0, (byte) ((size >> 21) & 0x7f), (byte) ((size >> 14) & 0x7f), (byte) ((size >> 7) & 0x7f), (byte) (size & 0x7f)});
+        frames.writeTo(file);
+        file.write(Files.readAllBytes(Paths.get("src/test/resources/raw.mp3")));
+        Path mp3 = dir.resolve("cover.mp3");
+        Files.write(mp3, file.toByteArray());
+
+        Id3v2Tag tag = Id3v2Tag.read(mp3);
+        assertNotNull(tag);
+        List<Id3v2Picture> pictures = tag.getPictures();
+        assertEquals(1, pictures.size());
+        Id3v2Picture picture = pictures.get(0);
+        assertEquals("image/png", picture.getMimeType());
+        assertEquals(3, picture.getPictureType());
+        assertEquals("cover", picture.getDescription());
+        assertEquals(image.length, picture.getLength());
+        byte[] bytes = Files.readAllBytes(mp3);
+        assertArrayEquals(image, Arrays.copyOfRange(bytes, (int) picture.getOffset(), (int) picture.getOffset() + picture.getLength()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(image.length, tag.transferPicture(picture, Channels.newChannel(out)));
+        assertArrayEquals(image, out.toByteArray());
+    }
+
+    /** v2.4, extended header, frame unsynchronisation and data length indicator */
+    @Test
+    void testV24() throws Exception {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(new byte[] {0, 0, 0, 6, 1, 0}); // extended header
+        byte[] body = {3, 'a', (byte) 0xff, 0, 'b'};
+        frames.write(new byte[] {'T', 'I', 'T', '2', 0, 0, 0, (byte) (body.length + 4), 0, 3, 0, 0, 0, 4});
+        frames.write(body);
+        frames.write(new byte[] {'T', 'A', 'L', 'B', 0, 0, 0, 4, 0, 0, 0, 'x', 'y', 'z'});
+        frames.write(new byte[16]); // padding
+        byte[] f = frames.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(10 + f.length);
+        buffer.put(new byte[] {'I', 'D', '3', 4, 0, 0x40, 0, 0, 0, (byte) f.length}).put(f).flip();
+
+        Id3v2Tag tag = Id3v2Tag.parse(buffer);
+        assertNotNull(tag);
+        assertEquals(2, tag.getFrameCount());
+        assertFalse(tag.isRaw(0));
+        ByteBuffer title = tag.getBody(0);
+        assertEquals(4, title.remaining());
+        assertEquals((byte) 0xff, title.get(2));
+        assertEquals('b', title.get(3));
+        assertTrue(tag.isRaw(1));
+        assertEquals("xyz", tag.getText("TALB"));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Mp3LibraryScannerTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class Mp3LibraryScannerTest {
+
+    @Test
+    void testScan() throws Exception {
+        Map<Path, MpegAudioFileFormat> results = new ConcurrentHashMap<>();
+        Mp3LibraryScanner.Stats stats = new Mp3LibraryScanner(2, 10_000).scan(Paths.get("src/test/resources"), results::put);
+        assertEquals(4, stats.getFiles()); // raw.mp3, test2.mp3, mono.mp3, info-cbr.mp3
+        assertEquals(0, stats.getFailures());
+        assertEquals(0, stats.getTimeouts());
+        assertEquals(4, results.size());
+        assertTrue(stats.getBytesPerFile() > 0);
+        assertTrue(stats.getBytesPerFile() < 64 * 1024, "bytes per file: " + stats.getBytesPerFile());
+        assertEquals(384, results.get(Paths.get("src/test/resources/test2.mp3")).properties().get("mp3.length.frames"));
+    }
+
+    @Test
+    void testListenerError() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Mp3LibraryScanner.Stats stats = new Mp3LibraryScanner(2, 10_000).scan(Paths.get("src/test/resources"), (path, format) -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("listener");
+        });
+        assertEquals(stats.getFiles(), calls.get());
+        assertEquals(stats.getFiles(), stats.getListenerErrors());
+        assertEquals(0, stats.getFailures());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * MpegAudioFileFormatCacheTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class MpegAudioFileFormatCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void test1() throws Exception {
+        Path path = dir.resolve("test2.mp3");
+        Files.copy(Paths.get("src/test/resources/test2.mp3"), path);
+        MpegAudioFileFormat format = (MpegAudioFileFormat) new MpegAudioFileReader().getAudioFileFormat(path);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+        MpegAudioFileFormatCache cache = new MpegAudioFileFormatCache(16, dir.resolve("cache"));
+        assertNull(cache.get(path, attributes));
+        cache.put(path, attributes, format);
+        MpegAudioFileFormat cached = cache.get(path, attributes);
+        assertNotNull(cached);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(format.getFrameLength(), cached.getFrameLength());
+        assertEquals(format.getFormat().toString(), cached.getFormat().toString());
+        Map<String, Object> props = cached.properties();
+        assertEquals(format.properties().get("title"), props.get("title"));
+        assertEquals(format.properties().get("duration"), props.get("duration"));
+        assertEquals(format.getFormat().properties().get("bitrate"), cached.getFormat().properties().get("bitrate"));
+        if (format.properties().get("mp3.vbr.toc") != null) {
+            assertArrayEquals((byte[]) format.properties().get("mp3.vbr.toc"), (byte[]) props.get("mp3.vbr.toc"));
+        }
+        assertFalse(props.containsKey("mp3.id3tag.v2"));
+
+        // another instance on the same directory, as after a restart
+        MpegAudioFileFormatCache restarted = new MpegAudioFileFormatCache(16, dir.resolve("cache"));
+        assertNotNull(restarted.get(path, attributes));
+        assertEquals(1, restarted.getDiskHits());
+
+        // the file is changed
+        Files.setLastModifiedTime(path, FileTime.fromMillis(attributes.lastModifiedTime().toMillis() - 10_000));
+        BasicFileAttributes changed = Files.readAttributes(path, BasicFileAttributes.class);
+        assertNull(restarted.get(path, changed));
+        assertNull(new MpegAudioFileFormatCache(16, dir.resolve("cache")).get(path, attributes));
+    }
+}
@@ -20,12 +20,18 @@
 package javazoom.spi.mpeg.sampled.file;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.logging.Logger;
 import javax.sound.sampled.AudioFileFormat;
@@ -37,8 +43,12 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 
@@ -132,6 +142,133 @@ class MpegAudioFileReaderTest {
         }
     }
 
+    @DisplayName("probe reads only the ID3v2 tag and a few frames")
+    @Test
+    void testProbeFootprint() throws Exception {
+        String path = "src/test/resources/test2.mp3";
+        long size = Files.size(Paths.get(path));
+        InputStream fin = new BufferedInputStream(Files.newInputStream(Paths.get(path)));
+        AudioInputStream in = AudioSystem.getAudioInputStream(fin);
+        long probed = (Long) in.getFormat().getProperty("mp3.probe.bytes");
+        assertTrue(probed < 64 * 1024, "probe: " + probed);
+        assertEquals(size, in.available(), "reset to the start");
+        in.close();
+    }
+
+    @Test
+    @DisplayName("mp3 in wav, the data chunk is located by walking chunks")
+    void testRiff() throws Exception {
+        AudioFileFormat format = new MpegAudioFileReader().getAudioFileFormat(new File("src/test/resources/mp3.wav"));
+        assertEquals(104L, format.getProperty("mp3.riff.data.offset"));
+        assertEquals(160496L, format.getProperty("mp3.riff.data.length"));
+        assertEquals(160496, format.getProperty("mp3.length.bytes"));
+
+        InputStream is = new BufferedInputStream(Files.newInputStream(Paths.get("src/test/resources/mp3.wav")));
+        AudioInputStream ais = new MpegAudioFileReader().getAudioInputStream(is);
+        assertEquals(160496, ais.available());
+        ais.close();
+    }
+
+    @Test
+    @DisplayName("a large chunk before the data chunk is walked over by positional reads")
+    void testRiffLargeChunk(@TempDir Path dir) throws Exception {
+        byte[] wav = Files.readAllBytes(Paths.get("src/test/resources/mp3.wav"));
+        int list = 100_000;
+        ByteBuffer buffer = ByteBuffer.allocate(wav.length + 8 + list).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(wav, 0, 12);
+        buffer.put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(list);
+        buffer.position(buffer.position() + list);
+        buffer.put(wav, 12, wav.length - 12);
+        buffer.putInt(4, buffer.capacity() - 8);
+        Path path = Files.write(dir.resolve("large-list.wav"), buffer.array());
+
+        AudioFileFormat format = new MpegAudioFileReader().getAudioFileFormat(path);
+        assertEquals(104L + 8 + list, format.getProperty("mp3.riff.data.offset"));
+        assertEquals(160496L, format.getProperty("mp3.riff.data.length"));
+        System.setProperty("mp3spi.mmap", "false");
+        try {
+            format = new MpegAudioFileReader().getAudioFileFormat(path);
+        } finally {
+            System.clearProperty("mp3spi.mmap");
+        }
+        assertEquals(104L + 8 + list, format.getProperty("mp3.riff.data.offset"));
+        // a sequential stream keeps the budget
+        InputStream is = new BufferedInputStream(Files.newInputStream(path));
+        assertThrows(UnsupportedAudioFileException.class, () -> new MpegAudioFileReader().getAudioFileFormat(is, AudioSystem.NOT_SPECIFIED));
+    }
+
+    @Test
+    @DisplayName("the mapped encoded stream is not cut at the count of MPEG frames")
+    void testMappedFrameLength() throws Exception {
+        File file = new File("src/test/resources/test2.mp3");
+        AudioInputStream mapped = new MpegAudioFileReader().getAudioInputStream(file);
+        assertEquals(-1, mapped.getFrameLength());
+        assertEquals(file.length(), mapped.available());
+        assertEquals(file.length(), mapped.readAllBytes().length);
+        mapped.close();
+    }
+
+    @Test
+    @DisplayName("a stream with a Xing/Info header is decoded through, not cut at the count of MPEG frames")
+    void testInfoStreamDecoded() throws Exception {
+        Path path = Paths.get("src/test/resources/test2.mp3");
+        long expected = decodedLength(AudioSystem.getAudioInputStream(path.toFile()));
+        AudioInputStream streamed = new MpegAudioFileReader().getAudioInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        assertEquals(-1, streamed.getFrameLength());
+        assertTrue(expected > 0);
+        assertEquals(expected, decodedLength(streamed));
+    }
+
+    /** 16 bit PCM bytes of the encoded stream */
+    private static long decodedLength(AudioInputStream encoded) throws IOException {
+        AudioFormat format = encoded.getFormat();
+        AudioFormat target = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+        try (AudioInputStream decoded = AudioSystem.getAudioInputStream(target, encoded)) {
+            return decoded.readAllBytes().length;
+        }
+    }
+
+    @Test
+    @DisplayName("the raw ID3v2 tag stream is read from the file, mapped or not")
+    void testRawId3v2() throws Exception {
+        Path path = Paths.get("src/test/resources/test2.mp3");
+        byte[] expected = Arrays.copyOf(Files.readAllBytes(path), 2233);
+        InputStream mapped = (InputStream) new MpegAudioFileReader().getAudioFileFormat(path).getProperty("mp3.id3tag.v2");
+        InputStream read;
+        System.setProperty("mp3spi.mmap", "false");
+        try {
+            read = (InputStream) new MpegAudioFileReader().getAudioFileFormat(path).getProperty("mp3.id3tag.v2");
+        } finally {
+            System.clearProperty("mp3spi.mmap");
+        }
+        assertEquals(2233, mapped.available());
+        mapped.mark(0);
+        assertEquals('I', mapped.read());
+        mapped.reset();
+        assertArrayEquals(expected, mapped.readAllBytes());
+        // the channel is closed already
+        assertArrayEquals(expected, read.readAllBytes());
+        assertEquals(-1, read.read());
+    }
+
+    @Test
+    @DisplayName("non MPEG streams are rejected without reading them through")
+    void testFastRejection() throws Exception {
+        MpegAudioFileReader reader = new MpegAudioFileReader();
+        // signature
+        InputStream caf = new BufferedInputStream(Files.newInputStream(Paths.get("src/test/resources/test.caf")));
+        assertThrows(UnsupportedAudioFileException.class, () -> reader.getAudioFileFormat(caf, AudioSystem.NOT_SPECIFIED));
+        assertEquals(Files.size(Paths.get("src/test/resources/test.caf")) - 22, caf.available());
+        // sync budget
+        byte[] noise = new byte[1024 * 1024];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (byte) ((i * 31 + (i >> 8)) & 0x7f); // never a sync word
+        }
+        InputStream is = new ByteArrayInputStream(noise);
+        assertThrows(UnsupportedAudioFileException.class, () -> reader.getAudioFileFormat(is, AudioSystem.NOT_SPECIFIED));
+        assertTrue(noise.length - is.available() < 64 * 1024, "read: " + (noise.length - is.available()));
+    }
+
     @DisplayName("Test for AudioInputStream getAudioInputStream(File)")
     @Test
     void _testGetAudioInputStreamFile() {
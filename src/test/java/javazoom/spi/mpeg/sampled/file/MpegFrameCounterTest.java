@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import javazoom.spi.mpeg.sampled.file.tag.TailTags;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * MpegFrameCounterTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class MpegFrameCounterTest {
+
+    @TempDir
+    Path dir;
+
+    /** the same as a sequential walk */
+    static void assertCount(Path path) throws Exception {
+        MpegFrameIndex index = MpegFrameIndex.scan(path);
+        try (FileChannel channel = FileChannel.open(path)) {
+            TailTags.Source source = TailTags.Source.of(channel);
+            long end = TailTags.read(source, channel.size()).getAudioEnd();
+            assertEquals(index.frameCount(), MpegFrameCounter.count(source, 0, end, index.header()));
+        }
+    }
+
+    @Test
+    void test1() throws Exception {
+        assertCount(Paths.get("src/test/resources/test2.mp3"));
+        assertCount(Paths.get("src/test/resources/mono.mp3"));
+    }
+
+    @Test
+    void testRegions() throws Exception {
+        byte[] mp3 = Files.readAllBytes(Paths.get("src/test/resources/raw.mp3"));
+        Random random = new Random(3);
+        Path path = dir.resolve("long.mp3");
+        try (OutputStream os = Files.newOutputStream(path)) {
+            // 32MiB, several regions with junk between frames
+            for (int i = 0; i < 200; i++) {
+                os.write(mp3);
+                if (i % 37 == 5) {
+                    byte[] junk = new byte[random.nextInt(3000)];
+                    random.nextBytes(junk);
+                    os.write(junk);
+                }
+            }
+        }
+        assertCount(path);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * MpegFrameIndexTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class MpegFrameIndexTest {
+
+    static final Path path = Paths.get("src/test/resources/test2.mp3");
+
+    @Test
+    void testScan() throws Exception {
+        MpegFrameIndex index = MpegFrameIndex.scan(path);
+        assertEquals(385, index.frameCount());
+        assertEquals(1152, index.samplesPerFrame());
+        assertEquals(44100, index.sampleRate());
+        for (int i = 1; i < index.frameCount(); i++) {
+            assertTrue(index.offset(i - 1) < index.offset(i));
+            assertEquals(i, index.frameAtOffset(index.offset(i)));
+            assertEquals(i - 1, index.frameAtOffset(index.offset(i) - 1));
+        }
+        assertEquals(index.frameCount(), index.frameAtOffset(Files.size(path)));
+        assertEquals(10, index.frameAtSample(10 * 1152 + 1));
+    }
+
+    @Test
+    void testSidecar(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("test2.mp3");
+        Files.copy(path, file);
+        MpegFrameIndex index = MpegFrameIndex.of(file, true);
+        assertTrue(Files.exists(MpegFrameIndex.sidecarOf(file)));
+        MpegFrameIndex read = MpegFrameIndex.read(MpegFrameIndex.sidecarOf(file));
+        assertTrue(read.isValidFor(file));
+        assertEquals(index.frameCount(), read.frameCount());
+        for (int i = 0; i <= index.frameCount(); i++) {
+            assertEquals(index.offset(i), read.offset(i));
+        }
+    }
+
+    @Test
+    void testBrokenSidecar(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("test2.mp3");
+        Files.copy(path, file);
+        MpegFrameIndex.of(file, true);
+        Path sidecar = MpegFrameIndex.sidecarOf(file);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(sidecar));
+        // count and blocks agree, the count is impossible for the source length
+        int count = Integer.MAX_VALUE - 1024;
+        bytes.putInt(28, count);
+        bytes.putInt(40, (count >>> 10) + 1);
+        Files.write(sidecar, bytes.array());
+        assertThrows(IOException.class, () -> MpegFrameIndex.read(sidecar));
+        // scanned again
+        assertEquals(385, MpegFrameIndex.of(file, true).frameCount());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * MpegSyncScannerTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class MpegSyncScannerTest {
+
+    @TempDir
+    Path dir;
+
+    /** random bytes with many 0xff, those make false candidates */
+    static byte[] junk(int length) {
+        byte[] junk = new byte[length];
+        new Random(length).nextBytes(junk);
+        for (int i = 0; i < length; i += 97) {
+            junk[i] = (byte) 0xff;
+        }
+        return junk;
+    }
+
+    static byte[] concat(byte[] a, byte[] b) {
+        byte[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    @Test
+    void testFind() throws Exception {
+        byte[] mp3 = Files.readAllBytes(Paths.get("src/test/resources/raw.mp3"));
+        for (int length : new int[] {0, 1, 7, 8, 9, 1025, 5000}) {
+            byte[] data = concat(junk(length), mp3);
+            assertEquals(length, MpegSyncScanner.find(ByteBuffer.wrap(data), MpegSyncScanner.DEFAULT_CHAIN));
+
+            InputStream is = MpegSyncScanner.sync(new ByteArrayInputStream(data), 0, 32 * 1024, MpegSyncScanner.DEFAULT_CHAIN);
+            assertArrayEquals(mp3, is.readAllBytes());
+        }
+    }
+
+    @Test
+    void testBudget() throws Exception {
+        byte[] data = concat(junk(40_000), Files.readAllBytes(Paths.get("src/test/resources/raw.mp3")));
+        InputStream is = MpegSyncScanner.sync(new ByteArrayInputStream(data), 0, 32 * 1024, MpegSyncScanner.DEFAULT_CHAIN);
+        assertEquals(-1, is.read());
+    }
+
+    @Test
+    void testProbe() throws Exception {
+        Path path = dir.resolve("junk.mp3");
+        Files.write(path, concat(junk(5000), Files.readAllBytes(Paths.get("src/test/resources/raw.mp3"))));
+        AudioFileFormat format = AudioSystem.getAudioFileFormat(path.toFile());
+        assertEquals(MpegFileFormatType.MP3, format.getType());
+    }
+}
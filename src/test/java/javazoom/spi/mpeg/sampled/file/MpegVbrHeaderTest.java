@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * MpegVbrHeaderTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class MpegVbrHeaderTest {
+
+    static final Path path = Paths.get("src/test/resources/test2.mp3");
+
+    @Test
+    void testParse() throws Exception {
+        byte[] bytes = Files.readAllBytes(path);
+        MpegFrameIndex index = MpegFrameIndex.scan(path);
+        int offset = (int) index.offset(0);
+        MpegVbrHeader vbr = MpegVbrHeader.parse(bytes, offset, MpegFrameHeader.frameSize(index.header()));
+        assertNotNull(vbr);
+        assertEquals("Info", vbr.getType());
+        assertEquals(index.frameCount() - 1, vbr.getFrames());
+        assertTrue(vbr.isSeekable());
+        assertEquals(576, vbr.getDelay());
+        assertEquals(0.5, vbr.fractionAt(vbr.byteAt(0.5)), 0.01);
+    }
+
+    @Test
+    void testProperties() throws Exception {
+        AudioFileFormat format = AudioSystem.getAudioFileFormat(path.toFile());
+        Map<String, Object> props = format.properties();
+        assertEquals("Info", props.get("mp3.vbr.header"));
+        assertEquals(384, props.get("mp3.length.frames"));
+        assertEquals(384L * 1152 * 1_000_000 / 44100, props.get("duration"));
+        assertNotNull(props.get("mp3.lame.encoder"));
+    }
+
+    /** the Info frame has the same header word as the audio frames */
+    @Test
+    void testSameHeaderWord() throws Exception {
+        Path path = Paths.get("src/test/resources/info-cbr.mp3");
+        MpegFrameIndex index = MpegFrameIndex.scan(path);
+        assertEquals(index.header(), ByteBuffer.wrap(Files.readAllBytes(path), (int) index.offset(1), 4).getInt());
+
+        AudioFileFormat format = AudioSystem.getAudioFileFormat(path.toFile());
+        Map<String, Object> props = format.properties();
+        assertEquals("Info", props.get("mp3.vbr.header"));
+        assertEquals(384, props.get("mp3.length.frames"));
+        assertEquals(576, props.get("mp3.lame.delay"));
+    }
+}
@@ -19,12 +19,15 @@
 
 package javazoom.spi.mpeg.sampled.file;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -35,12 +38,15 @@ import javax.sound.sampled.DataLine;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.SourceDataLine;
 
+import javazoom.spi.mpeg.sampled.convert.DecodedMpegAudioInputStream;
 import vavi.util.properties.annotation.Property;
 import vavi.util.properties.annotation.PropsEntity;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static vavi.sound.SoundUtil.volume;
 
@@ -137,6 +143,158 @@ class SkipTest {
         assertTrue(true, "testSkip : OK");
     }
 
+    @Test
+    void testSeekToSample() throws Exception {
+        Path path = Paths.get("src/test/resources/test2.mp3");
+        long[] samples = {0, 1, 1151, 1152, 100_000, 300_001};
+        byte[] expected = decode(path);
+        for (long sample : samples) {
+            try (DecodedMpegAudioInputStream din = decoded(path)) {
+                int frameSize = din.getFormat().getFrameSize();
+                long positioned = din.seekToSample(sample);
+                assertEquals(sample, positioned);
+                byte[] actual = din.readNBytes(4096);
+                int from = (int) (sample * frameSize);
+                assertArrayEquals(Arrays.copyOfRange(expected, from, from + actual.length), actual, "sample: " + sample);
+            }
+        }
+        try (DecodedMpegAudioInputStream din = decoded(path)) {
+            float sampleRate = din.getFormat().getSampleRate();
+            long micros = din.seekToMicroseconds(5_000_000);
+            assertEquals(5_000_000, micros, 1_000_000 / sampleRate);
+            assertEquals(5_000_000, (long) din.properties().get("mp3.position.microseconds"), 1_000_000 / sampleRate);
+        }
+    }
+
+    @Test
+    void testSeek() throws Exception {
+        Path path = Paths.get("src/test/resources/test2.mp3");
+        byte[] expected = decode(path);
+        for (long micros : new long[] {0, 1_000_000, 5_123_456, 8_000_000}) {
+            try (DecodedMpegAudioInputStream din = decoded(path)) {
+                float sampleRate = din.getFormat().getSampleRate();
+                int frameSize = din.getFormat().getFrameSize();
+                long positioned = din.seek(micros);
+                assertEquals(micros, positioned, 1_000_000 / sampleRate);
+                assertEquals(positioned, din.positionMicros());
+                long sample = (long) (micros * (double) sampleRate / 1_000_000d);
+                byte[] actual = din.readNBytes(4096);
+                int from = (int) (sample * frameSize);
+                assertArrayEquals(Arrays.copyOfRange(expected, from, from + actual.length), actual, "micros: " + micros);
+                assertEquals(sample + actual.length / frameSize, (long) (din.positionMicros() * (double) sampleRate / 1_000_000d), 1);
+            }
+        }
+    }
+
+    @Test
+    void testSkipUnknownLength() throws Exception {
+        Path path = Paths.get("src/test/resources/test2.mp3");
+        byte[] expected = decode(path);
+        AudioFormat baseFormat = AudioSystem.getAudioFileFormat(path.toFile()).getFormat();
+        // like a network stream, the length is not known
+        InputStream is = new BufferedInputStream(Files.newInputStream(path)) {
+            @Override public int available() {
+                return 0;
+            }
+        };
+        try (DecodedMpegAudioInputStream din = decoded(new AudioInputStream(is, baseFormat, AudioSystem.NOT_SPECIFIED))) {
+            // encoded bytes, same as a stream whose length is known
+            long toSkip = Files.size(path) / 2;
+            long skipped = din.skip(toSkip);
+            logger.info("Skip : " + skipped + "/" + toSkip);
+            // whole frames, 418 bytes at most at 128 kbps, 44.1 kHz
+            assertTrue(skipped > toSkip - 418 && skipped <= toSkip);
+            long frame = (Long) din.properties().get("mp3.frame");
+            assertTrue(frame > 0);
+            int pcmPerFrame = 1152 * din.getFormat().getFrameSize();
+            // frames just after the skip miss the bit reservoir
+            din.readNBytes(pcmPerFrame * 3);
+            byte[] actual = din.readNBytes(4096);
+            int from = (int) (frame + 3) * pcmPerFrame;
+            assertArrayEquals(Arrays.copyOfRange(expected, from, from + actual.length), actual);
+        }
+    }
+
+    @Test
+    void testSkipFromStart() throws Exception {
+        Path path = Paths.get("src/test/resources/test2.mp3");
+        // a fresh stream has the first header pending
+        try (DecodedMpegAudioInputStream din = decoded(path)) {
+            din.skipFrames(100);
+            assertEquals(100L, din.properties().get("mp3.frame"));
+            assertEquals(100 * 1152 * 1_000_000L / 44100, din.positionMicros(), 1);
+        }
+        try (DecodedMpegAudioInputStream din = indexed(path)) {
+            MpegFrameIndex index = (MpegFrameIndex) din.properties().get("mp3.index");
+            long skipped = din.skipFrames(100);
+            assertEquals(index.offset(100) - index.offset(0), skipped);
+            assertEquals(100L, din.properties().get("mp3.frame"));
+            assertEquals(skipped, din.properties().get("mp3.position.byte"));
+            assertEquals(100 * 1152 * 1_000_000L / 44100, din.positionMicros(), 1);
+        }
+        // the target is in the read ahead of the bitstream
+        try (DecodedMpegAudioInputStream din = indexed(path)) {
+            MpegFrameIndex index = (MpegFrameIndex) din.properties().get("mp3.index");
+            long skipped = din.skip(index.offset(3) - index.offset(0));
+            assertEquals(index.offset(3) - index.offset(0), skipped);
+            assertEquals(3L, din.properties().get("mp3.frame"));
+            assertEquals(skipped, din.properties().get("mp3.position.byte"));
+        }
+    }
+
+    @Test
+    void testIndexSeekRiff() throws Exception {
+        Path path = Paths.get("src/test/resources/mp3.wav");
+        byte[] expected = decode(path);
+        for (long sample : new long[] {1152 * 10 + 7, 100_000}) {
+            try (DecodedMpegAudioInputStream din = indexed(path)) {
+                MpegFrameIndex index = (MpegFrameIndex) din.properties().get("mp3.index");
+                long riffOffset = (Long) AudioSystem.getAudioFileFormat(path.toFile()).getProperty("mp3.riff.data.offset");
+                assertTrue(index.offset(index.frameCount()) <= Files.size(path) - riffOffset, "trailing chunks are not indexed");
+                int frameSize = din.getFormat().getFrameSize();
+                assertEquals(sample, din.seekToSample(sample));
+                byte[] actual = din.readNBytes(4096);
+                int from = (int) (sample * frameSize);
+                assertArrayEquals(Arrays.copyOfRange(expected, from, from + actual.length), actual, "sample: " + sample);
+            }
+        }
+    }
+
+    /** with a frame index by {@code mp3spi.index} */
+    private static DecodedMpegAudioInputStream indexed(Path path) throws Exception {
+        AudioInputStream in;
+        System.setProperty("mp3spi.index", "true");
+        try {
+            in = new MpegAudioFileReader().getAudioInputStream(path.toFile());
+        } finally {
+            System.clearProperty("mp3spi.index");
+        }
+        assertTrue(in.getFormat().properties().get("mp3.index") instanceof MpegFrameIndex);
+        return decoded(in);
+    }
+
+    private static DecodedMpegAudioInputStream decoded(Path path) throws Exception {
+        return decoded(AudioSystem.getAudioInputStream(path.toFile()));
+    }
+
+    private static DecodedMpegAudioInputStream decoded(AudioInputStream in) throws Exception {
+        AudioFormat baseFormat = in.getFormat();
+        AudioFormat decodedFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                                                    baseFormat.getSampleRate(),
+                                                    16,
+                                                    baseFormat.getChannels(),
+                                                    baseFormat.getChannels() * 2,
+                                                    baseFormat.getSampleRate(),
+                                                    false);
+        return (DecodedMpegAudioInputStream) AudioSystem.getAudioInputStream(decodedFormat, in);
+    }
+
+    private static byte[] decode(Path path) throws Exception {
+        try (AudioInputStream din = decoded(path)) {
+            return din.readAllBytes();
+        }
+    }
+
     private long skip(AudioInputStream in, long bytes) throws IOException {
         long SKIP_INACCURACY_SIZE = 1200;
         long totalSkipped = 0;
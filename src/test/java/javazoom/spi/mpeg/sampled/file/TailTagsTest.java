@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package javazoom.spi.mpeg.sampled.file;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import javazoom.spi.mpeg.sampled.file.tag.TailTags;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+
+/**
+ * TailTagsTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class TailTagsTest {
+
+    static final Path path = Paths.get("src/test/resources/raw.mp3");
+
+    @TempDir
+    Path dir;
+
+    /** raw mp3 + APEv2 + Lyrics3v2 + ID3v1 */
+    Path tagged() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(Files.readAllBytes(path));
+
+        ByteArrayOutputStream items = new ByteArrayOutputStream();
+        apeItem(items, "Title", "ape title");
+        apeItem(items, "Album", "ape album");
+        baos.write(items.toByteArray());
+        ByteBuffer footer = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        footer.put("APETAGEX".getBytes(StandardCharsets.US_ASCII)).putInt(2000).putInt(items.size() + 32).putInt(2).putInt(0);
+        baos.write(footer.array());
+
+        String lyrics = "LYRICSBEGIN" + "EAR00013lyrics artist" + "LYR00005hello";
+        baos.write(lyrics.getBytes(StandardCharsets.ISO_8859_1));
+        baos.write(String.format("%06dLYRICS200", lyrics.length()).getBytes(StandardCharsets.US_ASCII));
+
+        byte[] id3v1 = new byte[128];
+        System.arraycopy("TAG".getBytes(StandardCharsets.US_ASCII), 0, id3v1, 0, 3);
+        System.arraycopy("v1 title".getBytes(StandardCharsets.US_ASCII), 0, id3v1, 3, 8);
+        baos.write(id3v1);
+
+        Path tagged = dir.resolve("tagged.mp3");
+        Files.write(tagged, baos.toByteArray());
+        return tagged;
+    }
+
+    static void apeItem(ByteArrayOutputStream items, String key, String value) throws Exception {
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(v.length).putInt(0);
+        items.write(header.array());
+        items.write(key.getBytes(StandardCharsets.US_ASCII));
+        items.write(0);
+        items.write(v);
+    }
+
+    @Test
+    void testRead() throws Exception {
+        Path tagged = tagged();
+        try (SeekableByteChannel channel = Files.newByteChannel(tagged)) {
+            TailTags tags = TailTags.read(TailTags.Source.of(channel), channel.size());
+            assertNotNull(tags.getId3v1());
+            assertEquals("ape title", tags.getApe().get("title"));
+            assertEquals("hello", tags.getLyrics3().get("lyr"));
+            assertEquals(Files.size(path), tags.getAudioEnd());
+        }
+    }
+
+    @Test
+    void testProperties() throws Exception {
+        Path tagged = tagged();
+        Map<String, Object> props = new MpegAudioFileReader().getAudioFileFormat(tagged).properties();
+        assertEquals("ape title", props.get("title"));
+        assertEquals("ape album", props.get("album"));
+        assertEquals("lyrics artist", props.get("author"));
+        assertEquals("hello", props.get("mp3.lyrics3tag.lyr"));
+
+        try (SeekableByteChannel channel = Files.newByteChannel(tagged)) {
+            props = new MpegAudioFileReader().getAudioFileFormat(channel).properties();
+            assertEquals("ape title", props.get("title"));
+            assertEquals("lyrics artist", props.get("author"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.sound.sampled.mp3;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * TranscodeEngineTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
+ * @version 0.00 2026/10/17 umjammer initial version <br>
+ */
+class TranscodeEngineTest {
+
+    static final Path in = Paths.get("src/test/resources/test2.mp3");
+
+    @Test
+    void test() throws Exception {
+        long expected = decodedLength();
+        Path dir = Files.createDirectories(Paths.get("tmp", "transcode"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        // 2 workers for 8 jobs, the queue is smaller than the jobs
+        try (TranscodeEngine engine = new TranscodeEngine(executor, TranscodeEngine.PCM_BLOCK * 2, 2)) {
+            List<CompletableFuture<TranscodeEngine.Result>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(engine.submit(in, dir.resolve("out" + i + ".mp3")));
+            }
+            for (CompletableFuture<TranscodeEngine.Result> future : futures) {
+                TranscodeEngine.Result result = future.get();
+                System.err.println(result);
+                assertEquals(expected, result.pcmBytes());
+                assertEquals(Files.size(result.target()), result.encodedBytes());
+                assertTrue(result.realtimeFactor() > 0);
+                assertEquals(44100, AudioSystem.getAudioFileFormat(result.target().toFile()).getFormat().getSampleRate());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testBroken() throws Exception {
+        Path dir = Files.createDirectories(Paths.get("tmp", "transcode"));
+        Path junk = Files.write(dir.resolve("junk.mp3"), new byte[100_000]);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (TranscodeEngine engine = new TranscodeEngine(executor, TranscodeEngine.PCM_BLOCK, 1)) {
+            CompletableFuture<TranscodeEngine.Result> future = engine.submit(junk, dir.resolve("junk.out.mp3"));
+            assertThrows(Exception.class, future::get);
+            // the worker is back
+            assertTrue(engine.submit(in, dir.resolve("after.mp3")).get().audioMicros() > 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** 16 bit PCM bytes by the spi */
+    static long decodedLength() throws Exception {
+        AudioInputStream originalAudioInputStream = AudioSystem.getAudioInputStream(in.toFile());
+        AudioFormat originalAudioFormat = originalAudioInputStream.getFormat();
+        AudioFormat targetAudioFormat = new AudioFormat(originalAudioFormat.getSampleRate(), 16, originalAudioFormat.getChannels(), true, false);
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(targetAudioFormat, originalAudioInputStream)) {
+            return audioInputStream.readAllBytes().length;
+        }
+    }
+}